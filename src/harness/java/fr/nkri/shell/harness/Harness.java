@@ -0,0 +1,77 @@
+package fr.nkri.shell.harness;
+
+import java.util.Arrays;
+
+/**
+ * Runnable checks of the HTTP layer against a loopback StubServer : ./gradlew harness [-PharnessInclude=Cache]
+ * Each check prints PASS or FAIL, the process exits with 1 if any failed.
+ */
+public final class Harness {
+
+    /**
+     * Body of a check, failing by throwing
+     */
+    @FunctionalInterface
+    public interface Check {
+        void run() throws Exception;
+    }
+
+    private final String[] includes;
+    private int passed;
+    private int failed;
+
+    private Harness(final String[] includes) {
+        this.includes = includes;
+    }
+
+    public static void main(final String[] args) {
+        final Harness harness = new Harness(args);
+        HttpCacheChecks.register(harness);
+        ResilientCallerChecks.register(harness);
+
+        System.out.println(harness.passed + " passed, " + harness.failed + " failed");
+        System.exit(harness.failed > 0 ? 1 : 0);
+    }
+
+    /**
+     * Run a check unless it is filtered out by the command line arguments
+     * @param name check name, matched against the arguments
+     * @param check body
+     */
+    public void check(final String name, final Check check) {
+        if(this.includes.length > 0 && Arrays.stream(this.includes).noneMatch(name::contains)){
+            return;
+        }
+
+        try {
+            check.run();
+            this.passed++;
+            System.out.println("PASS " + name);
+        }
+        catch (final Throwable e) {
+            this.failed++;
+            System.out.println("FAIL " + name + " : " + e);
+        }
+    }
+
+    /**
+     * @param condition condition that must hold
+     * @param message failure message
+     */
+    public static void expect(final boolean condition, final String message) {
+        if(!condition){
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * @param expected expected value
+     * @param actual actual value
+     * @param what checked value, for the failure message
+     */
+    public static void expectEquals(final Object expected, final Object actual, final String what) {
+        if(expected == null ? actual != null : !expected.equals(actual)){
+            throw new AssertionError(what + " : expected " + expected + " but was " + actual);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package fr.nkri.shell.harness;
+
+import fr.nkri.shell.http.HttpCache;
+import fr.nkri.shell.http.HttpEngine;
+import fr.nkri.shell.http.HttpSettings;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static fr.nkri.shell.harness.Harness.expect;
+import static fr.nkri.shell.harness.Harness.expectEquals;
+import static fr.nkri.shell.harness.StubServer.respond;
+
+/**
+ * HttpCache freshness, revalidation and coalescing
+ */
+final class HttpCacheChecks {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private HttpCacheChecks() {
+    }
+
+    static void register(final Harness harness) {
+        harness.check("Cache.fresh", HttpCacheChecks::fresh);
+        harness.check("Cache.noStore", HttpCacheChecks::noStore);
+        harness.check("Cache.revalidateETag", HttpCacheChecks::revalidateETag);
+        harness.check("Cache.revalidateLastModified", HttpCacheChecks::revalidateLastModified);
+        harness.check("Cache.revalidateChanged", HttpCacheChecks::revalidateChanged);
+        harness.check("Cache.coalesce", HttpCacheChecks::coalesce);
+        harness.check("Cache.coalesceError", HttpCacheChecks::coalesceError);
+    }
+
+    /*
+    A response within its max-age is served without asking the server
+     */
+    private static void fresh() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/fresh", (exchange, hit) -> respond(exchange, 200, "body", "Cache-Control", "max-age=60"));
+            final HttpCache cache = new HttpCache(1 << 20, Duration.ofMinutes(1));
+
+            expectEquals("body", get(cache, engine, server.url("/fresh")), "first body");
+            expectEquals("body", get(cache, engine, server.url("/fresh")), "cached body");
+            expectEquals(1, server.hits("/fresh"), "server hits");
+            expectEquals(1L, cache.getHits(), "cache hits");
+        }
+    }
+
+    private static void noStore() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/private", (exchange, hit) -> respond(exchange, 200, "body " + hit, "Cache-Control", "no-store"));
+            final HttpCache cache = new HttpCache(1 << 20, Duration.ofMinutes(1));
+
+            expectEquals("body 1", get(cache, engine, server.url("/private")), "first body");
+            expectEquals("body 2", get(cache, engine, server.url("/private")), "second body");
+            expectEquals(0, cache.size(), "cached entries");
+        }
+    }
+
+    /*
+    An expired entry with an ETag is confirmed by a 304, its body is not sent again
+     */
+    private static void revalidateETag() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            final List<String> conditions = new ArrayList<>();
+            server.route("/etag", (exchange, hit) -> {
+                final String condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+                synchronized (conditions) {
+                    conditions.add(String.valueOf(condition));
+                }
+                if("\"v1\"".equals(condition)){
+                    respond(exchange, 304, null, "ETag", "\"v1\"", "Cache-Control", "max-age=0");
+                }
+                else {
+                    respond(exchange, 200, "version 1", "ETag", "\"v1\"", "Cache-Control", "max-age=0");
+                }
+            });
+            final HttpCache cache = new HttpCache(1 << 20, Duration.ofMinutes(1));
+
+            expectEquals("version 1", get(cache, engine, server.url("/etag")), "first body");
+            expectEquals("version 1", get(cache, engine, server.url("/etag")), "revalidated body");
+            expectEquals(List.of("null", "\"v1\""), conditions, "If-None-Match sent");
+            expectEquals(1L, cache.getRevalidated(), "revalidated");
+            expectEquals(1L, cache.getMisses(), "misses");
+        }
+    }
+
+    private static void revalidateLastModified() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            final String modified = "Wed, 21 Oct 2015 07:28:00 GMT";
+            server.route("/modified", (exchange, hit) -> {
+                if(modified.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))){
+                    respond(exchange, 304, null, "Cache-Control", "no-cache");
+                }
+                else {
+                    respond(exchange, 200, "page", "Last-Modified", modified, "Cache-Control", "no-cache");
+                }
+            });
+            final HttpCache cache = new HttpCache(1 << 20, Duration.ofMinutes(1));
+
+            get(cache, engine, server.url("/modified"));
+            expectEquals("page", get(cache, engine, server.url("/modified")), "revalidated body");
+            expectEquals(2, server.hits("/modified"), "server hits");
+            expectEquals(1L, cache.getRevalidated(), "revalidated");
+        }
+    }
+
+    /*
+    A changed resource answers the conditional request with its new body, which replaces the entry
+     */
+    private static void revalidateChanged() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/changed", (exchange, hit) ->
+                    respond(exchange, 200, "version " + hit, "ETag", "\"v" + hit + "\"", "Cache-Control", "max-age=0"));
+            final HttpCache cache = new HttpCache(1 << 20, Duration.ofMinutes(1));
+
+            expectEquals("version 1", get(cache, engine, server.url("/changed")), "first body");
+            expectEquals("version 2", get(cache, engine, server.url("/changed")), "changed body");
+            expectEquals(0L, cache.getRevalidated(), "revalidated");
+            expectEquals(1, cache.size(), "cached entries");
+        }
+    }
+
+    /*
+    Identical GETs sent while the first is in flight share its response
+     */
+    private static void coalesce() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/slow", (exchange, hit) -> {
+                Thread.sleep(500);
+                respond(exchange, 200, "slow body", "Cache-Control", "max-age=0");
+            });
+            final HttpCache cache = new HttpCache(1 << 20, Duration.ofMinutes(1));
+
+            final List<CompletableFuture<String>> futures = new ArrayList<>();
+            for(int i = 0; i < 20; i++){
+                futures.add(cache.get(engine, engine.request(server.url("/slow")).GET().build()));
+            }
+            for(CompletableFuture<String> future : futures){
+                expectEquals("slow body", future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), "shared body");
+            }
+            expectEquals(1, server.hits("/slow"), "server hits");
+            expectEquals(19L, cache.getCoalesced(), "coalesced");
+        }
+    }
+
+    /*
+    A failed request fails every caller that joined it, and is not cached
+     */
+    private static void coalesceError() throws Exception {
+        try (StubServer server = StubServer.start();
+             HttpEngine engine = new HttpEngine(new HttpSettings().requestTimeout(Duration.ofMillis(300)))) {
+            server.route("/timeout", (exchange, hit) -> {
+                if(hit == 1){
+                    Thread.sleep(2000);
+                }
+                respond(exchange, 200, "back", "Cache-Control", "max-age=60");
+            });
+            final HttpCache cache = new HttpCache(1 << 20, Duration.ofMinutes(1));
+
+            final List<CompletableFuture<String>> futures = new ArrayList<>();
+            for(int i = 0; i < 5; i++){
+                futures.add(cache.get(engine, engine.request(server.url("/timeout")).GET().build()));
+            }
+            for(CompletableFuture<String> future : futures){
+                expect(future.handle((body, error) -> error != null).get(TIMEOUT_SECONDS, TimeUnit.SECONDS), "joined request should fail");
+            }
+            expectEquals(0, cache.size(), "cached entries");
+            expectEquals("back", get(cache, engine, server.url("/timeout")), "body after the failure");
+            expectEquals(2, server.hits("/timeout"), "server hits");
+        }
+    }
+
+    private static String get(final HttpCache cache, final HttpEngine engine, final String url) throws Exception {
+        return cache.get(engine, engine.request(url).GET().build()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,224 @@
+package fr.nkri.shell.harness;
+
+import fr.nkri.shell.http.CallPolicy;
+import fr.nkri.shell.http.HttpEngine;
+import fr.nkri.shell.http.HttpSettings;
+import fr.nkri.shell.http.ResilientCaller;
+import fr.nkri.shell.http.RetryBudget;
+
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static fr.nkri.shell.harness.Harness.expect;
+import static fr.nkri.shell.harness.Harness.expectEquals;
+import static fr.nkri.shell.harness.StubServer.respond;
+
+/**
+ * ResilientCaller retries, hedging, deadline and cancellation against delayed and failing routes
+ */
+final class ResilientCallerChecks {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /*
+    Time a slow route holds its response, far longer than any check waits for it
+     */
+    private static final long SLOW_MILLIS = 5000;
+
+    private ResilientCallerChecks() {
+    }
+
+    static void register(final Harness harness) {
+        harness.check("Caller.retryStatus", ResilientCallerChecks::retryStatus);
+        harness.check("Caller.retryExhausted", ResilientCallerChecks::retryExhausted);
+        harness.check("Caller.retryTimeout", ResilientCallerChecks::retryTimeout);
+        harness.check("Caller.hedgeCancelsLoser", ResilientCallerChecks::hedgeCancelsLoser);
+        harness.check("Caller.deadline", ResilientCallerChecks::deadline);
+        harness.check("Caller.cancelInFlight", ResilientCallerChecks::cancelInFlight);
+        harness.check("Caller.cancelQueued", ResilientCallerChecks::cancelQueued);
+        harness.check("Caller.hostKey", ResilientCallerChecks::hostKey);
+    }
+
+    /*
+    Retried statuses are sent again until a usable response comes
+     */
+    private static void retryStatus() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/flaky", (exchange, hit) -> respond(exchange, hit <= 2 ? 503 : 200, "hit " + hit));
+            final ResilientCaller caller = new ResilientCaller(new RetryBudget(0.1, 10));
+
+            final HttpResponse<String> response = send(caller, engine, server.url("/flaky"),
+                    new CallPolicy().retries(3, Duration.ofMillis(10), Duration.ofMillis(50)));
+            expectEquals("hit 3", response.body(), "body");
+            expectEquals(2L, caller.getRetries(), "retries");
+        }
+    }
+
+    /*
+    Once the retries are over, the last retried status is returned
+     */
+    private static void retryExhausted() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/down", (exchange, hit) -> respond(exchange, 503, "down"));
+            final ResilientCaller caller = new ResilientCaller(new RetryBudget(0.1, 10));
+
+            final HttpResponse<String> response = send(caller, engine, server.url("/down"),
+                    new CallPolicy().retries(2, Duration.ofMillis(10), Duration.ofMillis(50)));
+            expectEquals(503, response.statusCode(), "status");
+            expectEquals(3, server.hits("/down"), "server hits");
+        }
+    }
+
+    /*
+    A timed out attempt is an I/O error, retried like a dropped connection
+     */
+    private static void retryTimeout() throws Exception {
+        try (StubServer server = StubServer.start();
+             HttpEngine engine = new HttpEngine(new HttpSettings().requestTimeout(Duration.ofMillis(200)))) {
+            server.route("/stall", (exchange, hit) -> {
+                if(hit == 1){
+                    Thread.sleep(SLOW_MILLIS);
+                }
+                respond(exchange, 200, "hit " + hit);
+            });
+            final ResilientCaller caller = new ResilientCaller(new RetryBudget(0.1, 10));
+
+            final HttpResponse<String> response = send(caller, engine, server.url("/stall"),
+                    new CallPolicy().retries(2, Duration.ofMillis(10), Duration.ofMillis(50)));
+            expectEquals("hit 2", response.body(), "body");
+            expectEquals(1L, caller.getRetries(), "retries");
+        }
+    }
+
+    /*
+    The hedge answers first, the late request it duplicates is cancelled instead of running to its end
+     */
+    private static void hedgeCancelsLoser() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/tail", (exchange, hit) -> {
+                if(hit == 1){
+                    Thread.sleep(SLOW_MILLIS);
+                }
+                respond(exchange, 200, "hit " + hit);
+            });
+            final ResilientCaller caller = new ResilientCaller(new RetryBudget(0.1, 10));
+
+            final HttpResponse<String> response = send(caller, engine, server.url("/tail"),
+                    new CallPolicy().hedge(Duration.ofMillis(100)));
+            expectEquals("hit 2", response.body(), "body");
+            await(() -> caller.getHedgesWon() == 1, "the hedge is not counted as won");
+            await(() -> engine.getInFlight() == 0, "the losing request is still in flight");
+        }
+    }
+
+    /*
+    Past the deadline the call fails, by the deadline itself or by the attempt timeout cut to it,
+    and its requests are cancelled
+     */
+    private static void deadline() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/late", (exchange, hit) -> {
+                Thread.sleep(SLOW_MILLIS);
+                respond(exchange, 200, "late");
+            });
+            final ResilientCaller caller = new ResilientCaller(new RetryBudget(0.1, 10));
+
+            try {
+                send(caller, engine, server.url("/late"), new CallPolicy().deadline(Duration.ofMillis(300)).hedge(Duration.ofMillis(100)));
+                throw new AssertionError("the call should miss its deadline");
+            }
+            catch (final ExecutionException e) {
+                expect(e.getCause() instanceof HttpTimeoutException, "expected an HttpTimeoutException, got " + e.getCause());
+            }
+            await(() -> engine.getInFlight() == 0, "requests are still in flight past the deadline");
+        }
+    }
+
+    /*
+    Cancelling the call cancels the exchange in flight
+     */
+    private static void cancelInFlight() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/hang", (exchange, hit) -> {
+                Thread.sleep(SLOW_MILLIS);
+                respond(exchange, 200, "hang");
+            });
+            final ResilientCaller caller = new ResilientCaller(new RetryBudget(0.1, 10));
+
+            final CompletableFuture<HttpResponse<String>> call = caller.send(engine, engine.request(server.url("/hang")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString(), new CallPolicy());
+            await(() -> engine.getInFlight() == 1, "the request was not sent");
+            call.cancel(true);
+            await(() -> engine.getInFlight() == 0, "the cancelled request is still in flight");
+        }
+    }
+
+    /*
+    Cancelling a call waiting for a slot on its host takes it out of the queue, it is never sent
+     */
+    private static void cancelQueued() throws Exception {
+        try (StubServer server = StubServer.start();
+             HttpEngine engine = new HttpEngine(new HttpSettings().maxRequestsPerHost(1))) {
+            server.route("/busy", (exchange, hit) -> {
+                Thread.sleep(500);
+                respond(exchange, 200, "hit " + hit);
+            });
+            final ResilientCaller caller = new ResilientCaller(new RetryBudget(0.1, 10));
+
+            final CompletableFuture<HttpResponse<String>> busy = engine.send(engine.request(server.url("/busy")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            final CompletableFuture<HttpResponse<String>> call = caller.send(engine, engine.request(server.url("/busy")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString(), new CallPolicy());
+            expectEquals(1, engine.getQueued(), "queued");
+
+            call.cancel(true);
+            expectEquals(0, engine.getQueued(), "queued after cancel");
+            expectEquals("hit 1", busy.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).body(), "body");
+            Thread.sleep(200);
+            expectEquals(1, server.hits("/busy"), "server hits");
+        }
+    }
+
+    /*
+    Latencies of a URL without a port are kept under the default port of its scheme, like the engine limits
+     */
+    private static void hostKey() throws Exception {
+        try (StubServer server = StubServer.start(); HttpEngine engine = new HttpEngine(new HttpSettings())) {
+            server.route("/ok", (exchange, hit) -> respond(exchange, 200, "ok"));
+            final ResilientCaller caller = new ResilientCaller(new RetryBudget(0.1, 10));
+
+            send(caller, engine, server.url("/ok"), new CallPolicy());
+            final String url = server.url("/ok");
+            expect(caller.getLatencies(url.substring(0, url.length() - "/ok".length())) != null, "latencies not found under " + url);
+
+            caller.send(engine, engine.request("http://localhost/unused").GET().build(),
+                    HttpResponse.BodyHandlers.discarding(), new CallPolicy()).cancel(true);
+            expect(caller.getLatencies("http://localhost:80") != null, "latencies of a URL without port not under port 80");
+        }
+    }
+
+    private static HttpResponse<String> send(final ResilientCaller caller, final HttpEngine engine, final String url,
+                                             final CallPolicy policy) throws Exception {
+        return caller.send(engine, engine.request(url).GET().build(), HttpResponse.BodyHandlers.ofString(), policy)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /*
+    Poll a condition reached asynchronously, for at most a second : counters are updated
+    just after the future they count is completed
+     */
+    private static void await(final BooleanSupplier condition, final String message) throws InterruptedException {
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while(!condition.getAsBoolean()){
+            if(System.nanoTime() > end){
+                throw new AssertionError(message);
+            }
+            Thread.sleep(10);
+        }
+    }
+}
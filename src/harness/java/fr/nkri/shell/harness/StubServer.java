@@ -0,0 +1,136 @@
+package fr.nkri.shell.harness;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP server on a free loopback port, answering each path with a scripted route.
+ * Routes can sleep, fail or answer differently from one hit to the next,
+ * so the HTTP clients can be checked against delays and errors without any network.
+ */
+public class StubServer implements AutoCloseable {
+
+    /**
+     * Answer of a path
+     */
+    @FunctionalInterface
+    public interface Route {
+
+        /**
+         * @param exchange request to answer
+         * @param hit 1 for the first request to this path, 2 for the next...
+         */
+        void handle(final HttpExchange exchange, final int hit) throws Exception;
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, AtomicInteger> hits;
+
+    private StubServer(final HttpServer server, final ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+        this.hits = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start a server on a free loopback port
+     * @return started server
+     * @throws IOException if no port could be bound
+     */
+    public static StubServer start() throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        /*
+        Slow routes must not hold up the others
+         */
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        return new StubServer(server, executor);
+    }
+
+    /**
+     * @param path path to answer
+     * @param route answer
+     * @return this server
+     */
+    public StubServer route(final String path, final Route route) {
+        final AtomicInteger count = this.hits.computeIfAbsent(path, key -> new AtomicInteger());
+        this.server.createContext(path, exchange -> {
+            try {
+                route.handle(exchange, count.incrementAndGet());
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (final Exception e) {
+                /*
+                Drop the connection, the client sees an I/O error
+                 */
+            }
+            finally {
+                exchange.close();
+            }
+        });
+        return this;
+    }
+
+    /**
+     * @param path route path
+     * @return URL of the path on this server
+     */
+    public String url(final String path) {
+        return "http://" + this.server.getAddress().getHostString() + ":" + this.server.getAddress().getPort() + path;
+    }
+
+    /**
+     * @param path route path
+     * @return requests received on the path
+     */
+    public int hits(final String path) {
+        final AtomicInteger count = this.hits.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Send a text response
+     * @param exchange request to answer
+     * @param status HTTP status
+     * @param body body, null for none
+     * @param headers name, value, name, value...
+     */
+    public static void respond(final HttpExchange exchange, final int status, final String body, final String... headers) throws IOException {
+        for(int i = 0; i + 1 < headers.length; i += 2){
+            exchange.getResponseHeaders().add(headers[i], headers[i + 1]);
+        }
+
+        if(body == null){
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+}
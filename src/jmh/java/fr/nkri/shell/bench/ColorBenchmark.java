@@ -0,0 +1,45 @@
+package fr.nkri.shell.bench;
+
+import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.io.StyledText;
+import fr.nkri.shell.io.Terminal;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Colored line building : String concatenation against the reusable StyledText buffer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorBenchmark {
+
+    private String message = "Unknown command! Type 'help' for commands.";
+
+    @Setup
+    public void setup() {
+        /*
+        Benchmarks usually run with a redirected output, measure the colored path
+         */
+        Terminal.setColors(true);
+    }
+
+    @Benchmark
+    public String color() {
+        return MiniColor.color(this.message, MiniColor.RED);
+    }
+
+    @Benchmark
+    public String logLine() {
+        return MiniColor.YELLOW + "[WARN] " + this.message + MiniColor.RESET;
+    }
+
+    @Benchmark
+    public int styledLogLine() {
+        return StyledText.local().append("[WARN] ", MiniColor.YELLOW).append(this.message, MiniColor.YELLOW).end().length();
+    }
+}
@@ -0,0 +1,74 @@
+package fr.nkri.shell.bench;
+
+import fr.nkri.shell.MiniShell;
+import fr.nkri.shell.cmds.AbstractShellCommand;
+import fr.nkri.shell.cmds.ShellCommand;
+import fr.nkri.shell.io.ShellOutput;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command lookup and full line dispatch as the number of registered commands grows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int commands;
+
+    private MiniShell shell;
+    private String lastName;
+    private String lastPrefix;
+    private String line;
+
+    @Setup
+    public void setup() {
+        ShellOutput.setSink(new NullSink());
+        this.shell = new MiniShell("bench", ">") {
+            @Override
+            protected void handleProcess(final String input) {
+            }
+        };
+
+        for(int i = 0; i < this.commands; i++){
+            final String name = "command" + i;
+            this.shell.registerCommand(new AbstractShellCommand() {
+                @Override
+                public String getName() {
+                    return name;
+                }
+            });
+        }
+
+        this.lastName = "COMMAND" + (this.commands - 1);
+        this.lastPrefix = "zz";
+        this.shell.registerCommand(new AbstractShellCommand() {
+            @Override
+            public String getName() {
+                return "zzlast";
+            }
+        });
+        this.line = "command" + (this.commands / 2) + " first \"second arg\" third";
+    }
+
+    @Benchmark
+    public ShellCommand findExact() {
+        return this.shell.findCommand(this.lastName);
+    }
+
+    @Benchmark
+    public ShellCommand findPrefix() {
+        return this.shell.findCommand(this.lastPrefix);
+    }
+
+    @Benchmark
+    public boolean executeLine() {
+        return this.shell.execute(this.line);
+    }
+}
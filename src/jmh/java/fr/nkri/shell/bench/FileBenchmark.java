@@ -0,0 +1,77 @@
+package fr.nkri.shell.bench;
+
+import fr.nkri.shell.cli.FileCLI;
+import fr.nkri.shell.io.ShellOutput;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * File reading and directory listing on generated fixtures
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileBenchmark {
+
+    @Param({"1000", "20000"})
+    public int files;
+
+    @Param({"16"})
+    public int fileMegabytes;
+
+    private Path directory;
+    private Path largeFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ShellOutput.setSink(new NullSink());
+        this.directory = Files.createTempDirectory("minishell-bench");
+
+        final Path listing = Files.createDirectory(this.directory.resolve("listing"));
+        for(int i = 0; i < this.files; i++){
+            if(i % 10 == 0){
+                Files.createDirectory(listing.resolve("dir" + i));
+            }
+            else {
+                Files.writeString(listing.resolve("file" + i + ".txt"), "content " + i);
+            }
+        }
+
+        this.largeFile = this.directory.resolve("large.log");
+        final String line = "2024-01-01T00:00:00 INFO fr.nkri.shell request handled in 12ms\n";
+        final StringBuilder chunk = new StringBuilder();
+        while(chunk.length() < 1 << 20){
+            chunk.append(line);
+        }
+        for(int i = 0; i < this.fileMegabytes; i++){
+            Files.writeString(this.largeFile, chunk, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String readFile() {
+        return FileCLI.readFile(this.largeFile.toString());
+    }
+
+    @Benchmark
+    public void listFiles() {
+        FileCLI.listFiles(this.directory.resolve("listing").toString());
+    }
+}
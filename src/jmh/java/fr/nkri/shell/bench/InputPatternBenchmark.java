@@ -0,0 +1,47 @@
+package fr.nkri.shell.bench;
+
+import fr.nkri.shell.enums.InputPattern;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Input validation throughput : String.matches recompiling the regex on every call,
+ * against the Pattern compiled once by InputPattern
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputPatternBenchmark {
+
+    private final String[] emails = {"john.doe@example.com", "invalid@", "a.b-c@sub.domain.org", "no-at-sign.com"};
+    private final String[] phones = {"0612345678", "06123", "0712345678", "abcdefghij"};
+    private int index;
+
+    @Benchmark
+    public boolean email() {
+        this.index = (this.index + 1) & 3;
+        return this.emails[this.index].matches(InputPattern.EMAIL.getRegex());
+    }
+
+    @Benchmark
+    public boolean frPhone() {
+        this.index = (this.index + 1) & 3;
+        return this.phones[this.index].matches(InputPattern.FR_PHONE.getRegex());
+    }
+
+    @Benchmark
+    public boolean emailCompiled() {
+        this.index = (this.index + 1) & 3;
+        return InputPattern.EMAIL.matches(this.emails[this.index]);
+    }
+
+    @Benchmark
+    public boolean frPhoneCompiled() {
+        this.index = (this.index + 1) & 3;
+        return InputPattern.FR_PHONE.matches(this.phones[this.index]);
+    }
+}
@@ -0,0 +1,23 @@
+package fr.nkri.shell.bench;
+
+import fr.nkri.shell.io.OutputSink;
+
+/**
+ * Output sink discarding everything, so benchmarks measure the work and not the terminal
+ */
+public class NullSink implements OutputSink {
+
+    @Override
+    public OutputSink print(final CharSequence text) {
+        return this;
+    }
+
+    @Override
+    public OutputSink print(final char c) {
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,42 @@
+package fr.nkri.shell.bench;
+
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.utils.ProgressBar;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress bar cost per update : drawn at once, or counted and left to the timer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressBarBenchmark {
+
+    @Param({"50", "200"})
+    public int width;
+
+    private ProgressBar bar;
+    private int current;
+
+    @Setup
+    public void setup() {
+        ShellOutput.setSink(new NullSink());
+        this.bar = new ProgressBar(this.width);
+    }
+
+    @Benchmark
+    public void update() {
+        this.current = (this.current + 1) % this.width;
+        this.bar.update(this.current);
+    }
+
+    @Benchmark
+    public void increment() {
+        this.bar.increment();
+    }
+}
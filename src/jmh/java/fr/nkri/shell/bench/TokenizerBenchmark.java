@@ -0,0 +1,40 @@
+package fr.nkri.shell.bench;
+
+import fr.nkri.shell.utils.CommandLexer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line tokenizing, plain and quoted
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private static final String PLAIN = "deploy service-a production   --force --timeout 30";
+    private static final String QUOTED = "greet \"John Doe\" 'single quoted' escaped\\ space \"say \\\"hi\\\"\" | match admin &";
+
+    private CommandLexer lexer;
+
+    @Setup
+    public void setup() {
+        this.lexer = new CommandLexer();
+    }
+
+    @Benchmark
+    public String[] plain() {
+        this.lexer.tokenize(PLAIN);
+        return this.lexer.arguments(1);
+    }
+
+    @Benchmark
+    public String[] quoted() {
+        this.lexer.tokenize(QUOTED);
+        return this.lexer.arguments(1);
+    }
+}
@@ -0,0 +1,60 @@
+package fr.nkri.shell.bench;
+
+import fr.nkri.shell.utils.CommandLexer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Environment variable expansion with many variables and long lines,
+ * done by the lexer while it splits the line as the shell does
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariableBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int variables;
+
+    @Param({"80", "2000"})
+    public int lineLength;
+
+    private Map<String, String> environment;
+    private CommandLexer lexer;
+    private String line;
+    private String plainLine;
+
+    @Setup
+    public void setup() {
+        this.environment = new HashMap<>();
+        for(int i = 0; i < this.variables; i++){
+            this.environment.put("VAR" + i, "value-" + i);
+        }
+
+        final StringBuilder builder = new StringBuilder("run $VAR0 ${VAR1}x $MISSING $VAR" + (this.variables - 1) + " ");
+        while(builder.length() < this.lineLength){
+            builder.append("word ");
+        }
+        this.line = builder.toString();
+        this.plainLine = this.line.replace('$', '#');
+        this.lexer = new CommandLexer();
+    }
+
+    @Benchmark
+    public String[] expand() {
+        this.lexer.tokenize(this.line, this.environment::get);
+        return this.lexer.arguments(1);
+    }
+
+    @Benchmark
+    public String[] expandWithoutReference() {
+        this.lexer.tokenize(this.plainLine, this.environment::get);
+        return this.lexer.arguments(1);
+    }
+}
@@ -1,18 +1,35 @@
 package fr.nkri.shell;
 
 import fr.nkri.shell.cli.MiniCLI;
-import fr.nkri.shell.cmds.HelpCommand;
-import fr.nkri.shell.cmds.ShellCommand;
+import fr.nkri.shell.cmds.*;
+import fr.nkri.shell.completion.Completion;
+import fr.nkri.shell.completion.CompletionEngine;
 import fr.nkri.shell.enums.MiniColor;
-
+import fr.nkri.shell.history.History;
+import fr.nkri.shell.io.LineReader;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.jobs.Job;
+import fr.nkri.shell.jobs.JobManager;
+import fr.nkri.shell.jobs.Pipeline;
+import fr.nkri.shell.metrics.MetricsRegistry;
+import fr.nkri.shell.server.ShellSession;
+import fr.nkri.shell.utils.CommandLexer;
+import fr.nkri.shell.utils.ScriptResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class MiniShell {
 
     /*
-    Scanner of this shell
+    Reader of the standard input, shared with the prompts of MiniCLI
      */
-    protected final Scanner scanner;
+    protected final LineReader reader;
 
     /*
     List of custom shell commands
@@ -20,10 +37,40 @@ public abstract class MiniShell {
     protected final Set<ShellCommand> shellCommands;
 
     /*
-    List of environment variables
+    Dispatch index by name, alias and prefix
+     */
+    protected final CommandRegistry commandRegistry;
+
+    /*
+    List of environment variables, shared by every session
      */
     protected final Map<String, String> environmentVars;
 
+    /*
+    Reusable command line tokenizer, one per thread running the loop
+     */
+    private final ThreadLocal<CommandLexer> commandLexer;
+
+    /*
+    Commands started with a trailing '&'
+     */
+    protected final JobManager jobManager;
+
+    /*
+    Calls, errors and latency of every command
+     */
+    protected final MetricsRegistry metrics;
+
+    /*
+    Lines typed at the prompt, kept in memory unless a file history is set
+     */
+    protected volatile History history;
+
+    /*
+    Tries of the command and variable names, for completion
+     */
+    protected final CompletionEngine completion;
+
     /*
     Shell settings : name and propt
      */
@@ -39,11 +86,19 @@ public abstract class MiniShell {
     public MiniShell(String shellName, String prompt) {
         this.shellName = shellName;
         this.prompt = prompt;
-        this.scanner = new Scanner(System.in);
-        this.shellCommands = new HashSet<>();
-        this.environmentVars = new HashMap<>();
+        this.reader = LineReader.stdin();
+        this.shellCommands = ConcurrentHashMap.newKeySet();
+        this.commandRegistry = new CommandRegistry();
+        this.environmentVars = new ConcurrentHashMap<>();
+        this.commandLexer = ThreadLocal.withInitial(CommandLexer::new);
+        this.jobManager = new JobManager();
+        this.metrics = new MetricsRegistry();
+        this.history = new History(History.DEFAULT_CAPACITY);
+        this.completion = new CompletionEngine(this.commandRegistry);
 
         registerCommand(new HelpCommand(this));
+        registerCommands(new JobsCommand(), new FgCommand(), new WaitCommand(), new KillCommand(), new StatsCommand(),
+                new HistoryCommand());
     }
 
     /**
@@ -73,13 +128,18 @@ public abstract class MiniShell {
     public void helpMessages(){
         MiniCLI.printTitle(this.shellName + " - Help Commands");
         for(ShellCommand shellCommand : shellCommands){
-            System.out.println(MiniColor.color(shellCommand.getUsage(), MiniColor.BOLD)
+            ShellOutput.println(MiniColor.color(shellCommand.getUsage(), MiniColor.BOLD)
                     + " : " +shellCommand.getDescription());
         }
+
+        ShellOutput.commit();
     }
 
     /**
-     * Each shell defines how to handle a command line
+     * Each shell defines how to handle a command line, called after its command ran.
+     * The line is passed as typed : $NAME references are not replaced, since they are
+     * expanded word by word while the line is split, see getEnvVars(String) for their values
+     * @param input line as typed
      */
     protected abstract void handleProcess(final String input);
 
@@ -88,59 +148,281 @@ public abstract class MiniShell {
      */
     public void run(){
         welcome();
+        loop(this.reader);
+
+        this.jobManager.shutdown();
+        this.history.close();
+    }
+
+    /**
+     * Run the shell loop for a remote session, on the calling thread.
+     * Its input, output, history, jobs and variables are bound to the thread until the loop ends.
+     * @param session session to serve, see ShellServer
+     */
+    public void runSession(final ShellSession session){
+        ShellSession.bind(session);
+        ShellOutput.bind(session.getOutput(), true);
+        LineReader.bind(session.getInput());
+        try {
+            welcome();
+            loop(session.getInput());
+        }
+        finally {
+            session.getJobManager().shutdown();
+            ShellOutput.flush();
+            LineReader.bind(null);
+            ShellOutput.bind(null);
+            ShellSession.bind(null);
+        }
+    }
 
+    /*
+    Prompt, read and run lines until exit or the end of the input
+     */
+    private void loop(final LineReader reader){
+        final History history = getHistory();
         while(true){
-            System.out.print(prefix() + " ");
-            String lineInput = scanner.nextLine();
+            reportFinishedJobs();
+            ShellOutput.print(prefix() + " ");
+            ShellOutput.flush();
+
+            final String lineInput;
+            try {
+                lineInput = reader.readLine();
+            }
+            catch (final IOException e) {
+                MiniCLI.error("Error reading input: " + e.getMessage());
+                break;
+            }
 
             /*
-            Check if user cancel shell
+            Check if user cancel shell, or the input ended (piped session)
              */
-            if(lineInput.equals("quit") || lineInput.equals("exit")){
+            if(lineInput == null || isExit(lineInput)){
                 break;
             }
 
             /*
-            Ignore if the field is empty
+            The terminal sends the line on Enter only : a line ending with TAB asks for its completions
              */
-            if(lineInput.isEmpty()){
+            if(lineInput.endsWith("\t")){
+                showCompletions(lineInput.stripTrailing());
                 continue;
             }
 
             /*
-            Replace if there is an environment variable
+            Replace !!, !n or !prefix with the recorded line, shown before it runs
              */
-            final String input = resolveVariables(lineInput);
+            final String line = history.expand(lineInput);
+            if(line == null){
+                continue;
+            }
+            if(!line.equals(lineInput)){
+                ShellOutput.println(line);
+            }
 
-            /*
-            Found and run command
-             */
-            final String[] parts = input.split(" ");
-            final String cmdName = parts[0];
-            final String[] args = parts.length > 1 ? Arrays.copyOfRange(parts, 1, parts.length) : new String[0];
+            history.add(line);
+            execute(line);
+        }
+    }
 
-            /*
-            Loop command
-             */
-            boolean hasFound = false;
-            for(ShellCommand command : this.shellCommands){
-                if(command.getName().equalsIgnoreCase(cmdName)){
-                    command.action(args);
-                    hasFound = true;
+    /**
+     * Run a script file without prompt nor welcome banner
+     * @param script script path, one command per line
+     * @return exit status and timing of the script
+     */
+    public ScriptResult runScript(final Path script){
+        try (InputStream inputStream = Files.newInputStream(script)) {
+            return runStream(inputStream);
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error reading script: " + e.getMessage());
+            return new ScriptResult(ScriptResult.IO_ERROR, 0, 0, 0L);
+        }
+    }
+
+    /**
+     * Run every line of a stream back to back, without prompt nor welcome banner.
+     * Empty lines and lines starting with '#' are skipped, 'exit' or 'quit' stops the script.
+     * A line fails if its command is unknown or throws, the script keeps going.
+     * @param inputStream commands, UTF-8, one per line
+     * @return exit status and timing of the script
+     */
+    public ScriptResult runStream(final InputStream inputStream){
+        final LineReader lines = new LineReader(inputStream, StandardCharsets.UTF_8);
+        final long start = System.nanoTime();
+        int executed = 0;
+        int failed = 0;
+
+        /*
+        Physical line number, blank and comment lines included
+         */
+        int lineNumber = 0;
+
+        ShellOutput.beginBatch();
+        try {
+            String lineInput;
+            while((lineInput = lines.readLine()) != null){
+                lineNumber++;
+                if(isExit(lineInput)){
                     break;
                 }
+
+                if(lineInput.isEmpty() || lineInput.charAt(0) == '#'){
+                    continue;
+                }
+
+                executed++;
+                try {
+                    if(!execute(lineInput)){
+                        failed++;
+                    }
+                }
+                catch (final RuntimeException e){
+                    MiniCLI.error("Line " + lineNumber + " failed: " + e.getMessage());
+                    failed++;
+                }
             }
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error reading script: " + e.getMessage());
+            return new ScriptResult(ScriptResult.IO_ERROR, executed, failed, System.nanoTime() - start);
+        }
+        finally {
+            ShellOutput.endBatch();
+        }
+
+        final int status = failed == 0 ? ScriptResult.SUCCESS : ScriptResult.FAILURE;
+        return new ScriptResult(status, executed, failed, System.nanoTime() - start);
+    }
+
+    /**
+     * Split the line resolving its variables, then find and run its command
+     * @param lineInput raw line typed or read from a script
+     * @return false if the line could not be parsed or its command was not found
+     */
+    public boolean execute(final String lineInput){
+        /*
+        Ignore if the field is empty
+         */
+        if(lineInput.isEmpty()){
+            return true;
+        }
 
-            if(!hasFound){
-                System.out.println(commandNotFound());
+        final CommandLexer lexer = this.commandLexer.get();
+
+        /*
+        Found and run command, its output is written out once it returns
+         */
+        boolean success = false;
+        ShellOutput.beginBatch();
+        try {
+            final int tokens = tokenize(lexer, lineInput);
+            if(tokens > 0){
+                final Pipeline pipeline = buildPipeline(lexer);
+                if(pipeline != null && lexer.isBackground()){
+                    final Job job = getJobManager().submit(lineInput.substring(0, lineInput.lastIndexOf('&')).trim(),
+                            () -> runPipeline(pipeline), true);
+                    ShellOutput.println("[" + job.getId() + "] started");
+                    success = true;
+                }
+                else if(pipeline != null){
+                    success = runPipeline(pipeline);
+                }
+            }
+            else {
+                success = lineInput.isBlank();
             }
 
             /*
             Direct implementation, if the user wants to
             retrieve the console input
              */
-            handleProcess(input);
+            handleProcess(lineInput);
         }
+        finally {
+            ShellOutput.endBatch();
+        }
+
+        return success;
+    }
+
+    /**
+     * Resolve the command of every '|' segment of the last tokenized line
+     * @return pipeline, or null with an error printed if a command is unknown or cannot be piped
+     */
+    private Pipeline buildPipeline(final CommandLexer lexer){
+        final Pipeline pipeline = new Pipeline(this.metrics);
+        for(int segment = 0; segment < lexer.segmentCount(); segment++){
+            final int start = lexer.segmentStart(segment);
+            final ShellCommand command = findCommand(lexer.token(start));
+            if(command == null){
+                ShellOutput.println(commandNotFound());
+                return null;
+            }
+
+            try {
+                pipeline.add(command, lexer.arguments(start + 1, lexer.segmentEnd(segment)));
+            }
+            catch (final IllegalArgumentException e){
+                MiniCLI.error(e.getMessage());
+                return null;
+            }
+        }
+
+        return pipeline;
+    }
+
+    private static boolean runPipeline(final Pipeline pipeline){
+        try {
+            return pipeline.run();
+        }
+        catch (final InterruptedException e){
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /*
+    Tell the user which background jobs ended since the last prompt
+     */
+    private void reportFinishedJobs(){
+        for(Job job : getJobManager().collectFinished()){
+            ShellOutput.println("[" + job.getId() + "] " + job.getState().getLabel() + "  " + job.getCommandLine()
+                    + (job.getOutput() != null && job.getOutput().length() > 0 ? "  (fg " + job.getId() + " to see its output)" : ""));
+        }
+    }
+
+    /*
+    Check if user cancel shell
+     */
+    private static boolean isExit(final String lineInput){
+        return lineInput.equals("quit") || lineInput.equals("exit");
+    }
+
+    /**
+     * Complete the last word of a line : command, $variable, argument or file path
+     * @param line typed line
+     * @return candidates and completed line
+     */
+    public Completion complete(final String line){
+        return this.completion.complete(line);
+    }
+
+    /*
+    Print the candidates, then the line completed as far as they agree
+     */
+    private void showCompletions(final String line){
+        final Completion result = complete(line);
+        if(result.isEmpty()){
+            ShellOutput.println(MiniColor.color("No completion.", MiniColor.DARK_GRAY));
+            return;
+        }
+
+        if(result.getCandidates().size() > 1){
+            ShellOutput.println(String.join("  ", result.getCandidates()));
+        }
+        ShellOutput.println(MiniColor.color(result.getLine(), MiniColor.DARK_GRAY));
     }
 
     /**
@@ -150,61 +432,157 @@ public abstract class MiniShell {
     public void registerCommand(final ShellCommand command){
         command.setShell(this);
         this.shellCommands.add(command);
+        this.commandRegistry.register(command);
+        this.completion.addCommand(command);
     }
 
     public void registerCommands(final ShellCommand... commands){
         for(ShellCommand command : commands){
-            command.setShell(this);
-            this.shellCommands.add(command);
+            registerCommand(command);
         }
     }
 
+    /**
+     * Remove a command from the custom shell
+     * @param command command to remove
+     */
+    public void unregisterCommand(final ShellCommand command){
+        this.shellCommands.remove(command);
+        this.commandRegistry.unregister(command);
+        this.completion.removeCommand(command);
+    }
+
+    /**
+     * Find a command by name, alias or unique prefix, ignoring case
+     * @param name typed command name
+     * @return command or null if not found or ambiguous
+     */
+    public ShellCommand findCommand(final String name){
+        return this.commandRegistry.resolve(name);
+    }
+
     /**
      * Save environment variable in the custom shell without prefix
      * @param name environment variable name
      * @param value env vars value
      */
     public void registerEnvVar(final String name, final String value){
+        if(value == null){
+            this.environmentVars.remove(name);
+            this.completion.removeVariable(name);
+            return;
+        }
         this.environmentVars.put(name, value);
+        this.completion.addVariable(name);
     }
 
     /**
-     * Retrieve the value of an environment variable
+     * Retrieve the value of an environment variable, the session one first inside a session
      * @param name environment variable name
      * @return env vars value
      */
     public String getEnvVars(final String name){
+        final ShellSession session = ShellSession.current();
+        if(session != null){
+            final String value = session.getEnvVar(name);
+            if(value != null){
+                return value;
+            }
+        }
         return this.environmentVars.get(name);
     }
 
+    /**
+     * Set a variable, for the current session only inside a session
+     * @param name environment variable name
+     * @param value env vars value, null removes the variable
+     */
     public void setEnvVar(final String name, final String value){
+        if(value == null){
+            removeEnvVar(name);
+            return;
+        }
+
+        final ShellSession session = ShellSession.current();
+        if(session != null){
+            session.setEnvVar(name, value);
+            return;
+        }
         this.environmentVars.put(name, value);
+        this.completion.addVariable(name);
     }
 
     public boolean hasEnvVar(final String name){
-        return this.environmentVars.containsKey(name);
+        final ShellSession session = ShellSession.current();
+        return (session != null && session.hasEnvVar(name)) || this.environmentVars.containsKey(name);
     }
 
+    /**
+     * Remove a variable, inside a session only its session value
+     * @param name environment variable name
+     */
     public void removeEnvVar(final String name){
+        final ShellSession session = ShellSession.current();
+        if(session != null){
+            session.removeEnvVar(name);
+            return;
+        }
         this.environmentVars.remove(name);
+        this.completion.removeVariable(name);
     }
 
     /**
-     * Shell would automatically replace env var with its value.
+     * Split the input into command name and arguments, honouring quotes and escapes.
+     * Shell would automatically replace $NAME and ${NAME} with their values,
+     * except in 'single quotes' or when escaped as \$
      * @param input user input
-     * @return env var value
+     * @return number of tokens, 0 if empty or malformed
      */
-    private String resolveVariables(String input){
-        for(Map.Entry<String, String> entry : this.environmentVars.entrySet()){
-            final String variable = "$" + entry.getKey();
-            final String value = entry.getValue();
+    private int tokenize(final CommandLexer lexer, final String input){
+        try {
+            return lexer.tokenize(input, this::getEnvVars);
+        }
+        catch (final IllegalArgumentException e){
+            MiniCLI.error(e.getMessage());
+            return 0;
+        }
+    }
 
-            if(input.contains(variable)){
-                input = input.replace(variable, value);
-            }
+    /**
+     * @return per command metrics, to export them or read them live
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return lines typed at the prompt, those of the session inside a session
+     */
+    public History getHistory() {
+        final ShellSession session = ShellSession.current();
+        return session != null ? session.getHistory() : history;
+    }
+
+    /**
+     * Replace the history, e.g. with History.open(file) to keep it between sessions
+     * @param history new history, the previous one is closed
+     */
+    public void setHistory(final History history) {
+        if(history == null){
+            throw new IllegalArgumentException("History can't be null!");
         }
+        if(this.history != history){
+            this.history.close();
+        }
+        this.history = history;
+    }
 
-        return input;
+    /**
+     * @return background jobs, those of the session inside a session
+     */
+    public JobManager getJobManager() {
+        final ShellSession session = ShellSession.current();
+        return session != null ? session.getJobManager() : jobManager;
     }
 
     public String getPrompt() {
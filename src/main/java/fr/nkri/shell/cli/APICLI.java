@@ -1,19 +1,91 @@
 package fr.nkri.shell.cli;
 
-import java.net.URI;
-import java.net.http.HttpClient;
+import fr.nkri.shell.http.*;
+import fr.nkri.shell.io.LineSink;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * HTTP requests with token and header support
  */
 public class APICLI {
 
-    private static final HttpClient client = HttpClient.newHttpClient();
+    /*
+    Shared engine : connection pool, timeouts and per host limit
+     */
+    private static volatile HttpEngine engine = new HttpEngine(new HttpSettings());
+
+    /*
+    GET responses cache, null when disabled
+     */
+    private static volatile HttpCache cache;
+
+    /*
+    Deadlines, retries and hedging of the calls made with a policy, sharing one retry budget
+     */
+    private static volatile ResilientCaller caller = new ResilientCaller(new RetryBudget(0.1, 20));
+
+    /**
+     * Replace the shared engine, the requests in flight on the previous one still complete
+     * @param settings timeouts, HTTP version, executor and per host limit
+     */
+    public static void configure(final HttpSettings settings) {
+        final HttpEngine previous = engine;
+        engine = new HttpEngine(settings);
+        previous.close();
+    }
+
+    /**
+     * @return shared engine, e.g. to read its in-flight and queued counters
+     */
+    public static HttpEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Serve the GETs from a response cache, disabled by default
+     * @param httpCache cache to use, null to disable it
+     */
+    public static void setCache(final HttpCache httpCache) {
+        cache = httpCache;
+    }
+
+    /**
+     * @return response cache, e.g. to read its hit/miss counters, null when disabled
+     */
+    public static HttpCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Replace the retry budget shared by the calls made with a policy, resetting their counters
+     * @param budget budget of the retries and hedges
+     */
+    public static void setRetryBudget(final RetryBudget budget) {
+        caller = new ResilientCaller(budget);
+    }
+
+    /**
+     * @return caller of the requests made with a policy, e.g. to read its retry and hedge counters
+     */
+    public static ResilientCaller getCaller() {
+        return caller;
+    }
 
     /**
      * Asynchronous GET with token and additional headers
@@ -25,26 +97,34 @@ public class APICLI {
 
      */
     public static CompletableFuture<String> getAsync(final String url, final String token, final Map<String, String> headers) {
-        final HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+        return getAsync(url, token, headers, null);
+    }
+
+    /**
+     * Asynchronous GET under a deadline, retry and hedging policy.
+     * Calls with a policy skip the response cache.
+     *
+     * @param url Target URL
+     * @param token Token for Authorization (can be null)
+     * @param headers Other custom headers
+     * @param policy deadline, retries and hedging, null to send the request once
+     * @return CompleteableFuture of the body
+     */
+    public static CompletableFuture<String> getAsync(final String url, final String token, final Map<String, String> headers, final CallPolicy policy) {
+        final HttpRequest.Builder builder = engine.request(url)
                 .GET();
 
-        /*
-        Add token if not null
-         */
-        if(token != null && !token.isEmpty()){
-            builder.header("Authorization", "Bearer " + token);
-        }
+        authorize(builder, token, headers);
 
         /*
-        Add more header
+        Cached GET if enabled
          */
-        if(headers != null){
-            headers.forEach(builder::header);
-        }
+        final HttpCache httpCache = cache;
+        final CompletableFuture<String> body = policy != null ? send(builder.build(), policy).thenApply(HttpResponse::body)
+                : httpCache != null ? httpCache.get(engine, builder.build())
+                : engine.send(builder.build(), HttpResponse.BodyHandlers.ofString()).thenApply(HttpResponse::body);
 
-        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString())
-                .thenApply(HttpResponse::body)
+        return body
                 .exceptionally(e -> {
                     MiniCLI.error("GET request error: " + e.getMessage());
                     return null;
@@ -61,29 +141,243 @@ public class APICLI {
      * @return CompleteableFuture of the body
      */
     public static CompletableFuture<String> postAsync(final String url, final String jsonBody, final String token, final Map<String, String> headers) {
-        final HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString(jsonBody)).header("Content-Type", "application/json");
+        return postAsync(url, jsonBody, token, headers, null);
+    }
 
-        /*
-        Add token if not null
-         */
+    /**
+     * Asynchronous POST under a deadline, retry and hedging policy.
+     * Retries and hedges send the body again : only use them with idempotent endpoints.
+     *
+     * @param url URL
+     * @param jsonBody JSON content
+     * @param token token for Authorization (can be null)
+     * @param headers other custom headers
+     * @param policy deadline, retries and hedging, null to send the request once
+     * @return CompleteableFuture of the body
+     */
+    public static CompletableFuture<String> postAsync(final String url, final String jsonBody, final String token,
+                                                      final Map<String, String> headers, final CallPolicy policy) {
+        final HttpRequest.Builder builder = engine.request(url)
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody)).header("Content-Type", "application/json");
+
+        authorize(builder, token, headers);
+
+        return (policy != null ? send(builder.build(), policy) : engine.send(builder.build(), HttpResponse.BodyHandlers.ofString()))
+                .thenApply(HttpResponse::body)
+                .exceptionally(e -> {
+                    MiniCLI.error("POST request error: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Asynchronous GET streaming the body line by line to a sink, as it arrives.
+     * The body is never held in memory : a slow sink slows the download down,
+     * a sink that stops reading (e.g. head in a pipeline) cancels it.
+     *
+     * @param url target URL
+     * @param token token for Authorization (can be null)
+     * @param headers other custom headers
+     * @param sink receives the lines, from the HTTP client threads
+     * @return CompletableFuture of the number of lines written, null if error
+     */
+    public static CompletableFuture<Long> getLines(final String url, final String token, final Map<String, String> headers, final LineSink sink) {
+        final HttpRequest.Builder builder = engine.request(url)
+                .GET();
+
+        authorize(builder, token, headers);
+
+        final LineSubscriber subscriber = new LineSubscriber(sink);
+        return engine.send(builder.build(), info -> isSuccess(info.statusCode())
+                        ? subscriber.asBodySubscriber(charset(info.headers()))
+                        : HttpResponse.BodySubscribers.replacing(null))
+                .thenApply(response -> checkStatus(response).body())
+                .exceptionally(e -> {
+                    MiniCLI.error("GET request error: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Asynchronous GET written straight to a file, the body never goes through the heap.
+     * Progress is reported from Content-Length, e.g. TransferListener.of(new ProgressBar(40)).
+     *
+     * @param url target URL
+     * @param token token for Authorization (can be null)
+     * @param headers other custom headers
+     * @param target file to create or replace
+     * @param listener download progress (can be null)
+     * @return CompletableFuture of the written file, null if error
+     */
+    public static CompletableFuture<Path> download(final String url, final String token, final Map<String, String> headers,
+                                                   final Path target, final TransferListener listener) {
+        final HttpRequest.Builder builder = engine.request(url)
+                .GET();
+
+        authorize(builder, token, headers);
+
+        return engine.send(builder.build(), info -> {
+                    if(!isSuccess(info.statusCode())){
+                        return HttpResponse.BodySubscribers.replacing(null);
+                    }
+
+                    final HttpResponse.BodySubscriber<Path> file = HttpResponse.BodyHandlers.ofFile(target).apply(info);
+                    return listener == null ? file
+                            : new CountingSubscriber<>(file, info.headers().firstValueAsLong("Content-Length").orElse(-1L), listener);
+                })
+                .thenApply(response -> checkStatus(response).body())
+                .exceptionally(e -> {
+                    MiniCLI.error("Download error: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Asynchronous POST of a file, streamed from the disk instead of being loaded in memory
+     *
+     * @param url URL
+     * @param file file to send
+     * @param contentType content type of the file
+     * @param token token for Authorization (can be null)
+     * @param headers other custom headers
+     * @param listener upload progress (can be null)
+     * @return CompletableFuture of the response body, null if error
+     */
+    public static CompletableFuture<String> upload(final String url, final Path file, final String contentType, final String token,
+                                                   final Map<String, String> headers, final TransferListener listener) {
+        final HttpRequest.BodyPublisher body;
+        try {
+            body = listener == null ? HttpRequest.BodyPublishers.ofFile(file)
+                    : new CountingPublisher(HttpRequest.BodyPublishers.ofFile(file), listener);
+        }
+        catch (final FileNotFoundException e) {
+            MiniCLI.error("File not found!");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final HttpRequest.Builder builder = engine.request(url)
+                .POST(body).header("Content-Type", contentType);
+
+        authorize(builder, token, headers);
+
+        return engine.send(builder.build(), HttpResponse.BodyHandlers.ofString())
+                .thenApply(HttpResponse::body)
+                .exceptionally(e -> {
+                    MiniCLI.error("Upload error: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * GET every URL with a bounded number of requests in flight, and wait for all of them.
+     * Failed requests are reported as results, with their error, instead of being swallowed.
+     *
+     * @param urls URLs, read lazily, e.g. Files.lines(path).iterator()
+     * @param token token for Authorization (can be null)
+     * @param headers other custom headers
+     * @param options concurrency window and result order
+     * @param consumer receives each result, one at a time
+     * @return totals, throughput and latency percentiles, null if interrupted
+     */
+    public static BatchSummary batchGet(final Iterator<String> urls, final String token, final Map<String, String> headers,
+                                        final BatchOptions options, final Consumer<BatchResult> consumer) {
+        return batch(urls, line -> {
+            final HttpRequest.Builder builder = engine.request(line.trim())
+                    .GET();
+
+            authorize(builder, token, headers);
+            return builder.build();
+        }, options, consumer);
+    }
+
+    /**
+     * POST every JSON body to the same URL with a bounded number of requests in flight, and wait for all of them
+     *
+     * @param url URL
+     * @param jsonBodies JSON contents, read lazily, e.g. one per line of a file
+     * @param token token for Authorization (can be null)
+     * @param headers other custom headers
+     * @param options concurrency window and result order
+     * @param consumer receives each result, one at a time
+     * @return totals, throughput and latency percentiles, null if interrupted
+     */
+    public static BatchSummary batchPost(final String url, final Iterator<String> jsonBodies, final String token, final Map<String, String> headers,
+                                         final BatchOptions options, final Consumer<BatchResult> consumer) {
+        return batch(jsonBodies, jsonBody -> {
+            final HttpRequest.Builder builder = engine.request(url)
+                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody)).header("Content-Type", "application/json");
+
+            authorize(builder, token, headers);
+            return builder.build();
+        }, options, consumer);
+    }
+
+    /**
+     * Send a request per input with a bounded number in flight, and wait for all of them
+     *
+     * @param inputs inputs, read lazily
+     * @param requests builds the request of an input, e.g. with getEngine().request(url)
+     * @param options concurrency window and result order
+     * @param consumer receives each result, one at a time
+     * @return totals, throughput and latency percentiles, null if interrupted
+     */
+    public static BatchSummary batch(final Iterator<String> inputs, final Function<String, HttpRequest> requests,
+                                     final BatchOptions options, final Consumer<BatchResult> consumer) {
+        try {
+            return new HttpBatch(engine).run(inputs, requests, options, consumer);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            MiniCLI.error("Batch interrupted");
+            return null;
+        }
+    }
+
+    /*
+    Add the token if not null, then the other headers
+     */
+    private static void authorize(final HttpRequest.Builder builder, final String token, final Map<String, String> headers) {
         if(token != null && !token.isEmpty()){
             builder.header("Authorization", "Bearer " + token);
         }
 
-        /*
-        Add more header
-         */
         if(headers != null){
             headers.forEach(builder::header);
         }
+    }
 
-        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString())
-                .thenApply(HttpResponse::body)
-                .exceptionally(e -> {
-                    MiniCLI.error("POST request error: " + e.getMessage());
-                    return null;
-                });
+    private static boolean isSuccess(final int statusCode) {
+        return statusCode / 100 == 2;
+    }
+
+    private static <T> HttpResponse<T> checkStatus(final HttpResponse<T> response) {
+        if(!isSuccess(response.statusCode())){
+            throw new CompletionException(new IOException("HTTP " + response.statusCode()));
+        }
+        return response;
+    }
+
+    /*
+    Charset of the Content-Type header, UTF-8 by default
+     */
+    private static Charset charset(final HttpHeaders headers) {
+        final String contentType = headers.firstValue("Content-Type").orElse("");
+        final int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if(index >= 0){
+            try {
+                return Charset.forName(contentType.substring(index + 8).split(";")[0].replace("\"", "").trim());
+            }
+            catch (final IllegalArgumentException e) {
+                /*
+                Unknown charset : UTF-8
+                 */
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static CompletableFuture<HttpResponse<String>> send(final HttpRequest request, final CallPolicy policy) {
+        return caller.send(engine, request, HttpResponse.BodyHandlers.ofString(), policy);
     }
 
     /*
@@ -1,39 +1,343 @@
 package fr.nkri.shell.cli;
 
+import fr.nkri.shell.completion.DirectoryCache;
+import fr.nkri.shell.enums.FileEvent;
+import fr.nkri.shell.enums.FileSort;
 import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.io.LineSink;
+import fr.nkri.shell.io.OutputSink;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.io.StyledText;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Custom file manager
  */
 public class FileCLI {
 
+    /*
+    Buffer sizes for large files
+     */
+    private static final int STREAM_BUFFER_SIZE = 1 << 20;
+    private static final int SEEK_BUFFER_SIZE = 1 << 16;
+    public static final int DEFAULT_MAP_CHUNK_SIZE = 1 << 26;
+
+    /*
+    Listings of the directories completed lately
+     */
+    private static final DirectoryCache DIRECTORIES = new DirectoryCache();
+
     /**
      * List all files and directories in a given folder.
      * @param path folder path to list
      */
     public static void listFiles(final String path) {
-        final File folder = new File(path);
+        listFiles(path, new ListOptions());
+    }
 
-        if(!folder.exists() || !folder.isDirectory()){
+    /**
+     * List a folder, possibly recursively and in parallel.
+     * Entries are printed as they are found, unless they have to be sorted first.
+     * @param path folder path to list
+     * @param options depth, parallelism, sort, limit and summary
+     * @return totals of the listed entries or null if error
+     */
+    public static ListSummary listFiles(final String path, final ListOptions options) {
+        if(!Files.isDirectory(Paths.get(path))){
             MiniCLI.error("File not found!");
-            return;
+            return null;
+        }
+
+        ShellOutput.println(MiniColor.color("Content of:" + path, MiniColor.AQUA));
+
+        /*
+        Parallel walkers print to the sink of the calling thread, one line at a time
+         */
+        final OutputSink out = ShellOutput.sink();
+        final boolean recursive = options.isRecursive();
+        final ListSummary summary = walk(path, options, entry -> {
+            final String name = recursive ? entry.getRelativePath().toString() : entry.getName();
+            final StyledText line = StyledText.local();
+            if(entry.isDirectory()){
+                line.style(MiniColor.BLUE).append("[DIR] ");
+            }
+            line.append(name).end().append('\n');
+            synchronized (out) {
+                out.print(line);
+            }
+        });
+
+        if(summary != null && options.isSummary()){
+            ShellOutput.println(MiniColor.color(summary.toString(), MiniColor.AQUA));
+        }
+
+        ShellOutput.commit();
+        return summary;
+    }
+
+    /**
+     * Walk a folder, handing every entry with its attributes to a consumer.
+     * Attributes are read once per entry during the walk, unreadable entries are skipped.
+     * In parallel mode the consumer is called from several threads.
+     * @param path folder path to walk
+     * @param options depth, parallelism, sort and limit
+     * @param consumer receives the entries
+     * @return totals of the entries handed to the consumer or null if error
+     */
+    public static ListSummary walk(final String path, final ListOptions options, final Consumer<FileEntry> consumer) {
+        final Path root = Paths.get(path);
+        if(!Files.isDirectory(root)){
+            MiniCLI.error("File not found!");
+            return null;
+        }
+
+        final long start = System.nanoTime();
+        final WalkState state = new WalkState(options, consumer);
+
+        try {
+            if(options.isParallel()){
+                ForkJoinPool.commonPool().invoke(new WalkTask(root, root, 1, state));
+            }
+            else {
+                walkSequential(root, state);
+            }
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error listing files");
+            return null;
+        }
+
+        state.flushSorted();
+        return new ListSummary(state.files.sum(), state.directories.sum(), state.bytes.sum(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static void walkSequential(final Path root, final WalkState state) throws IOException {
+        Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), state.options.getMaxDepth(), new SimpleFileVisitor<>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+                if(!dir.equals(root)){
+                    state.accept(new FileEntry(dir, root.relativize(dir), attrs));
+                }
+                return state.isStopped() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                state.accept(new FileEntry(file, root.relativize(file), attrs));
+                return state.isStopped() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /*
+    Lists one directory, forking a sub-task per sub-directory
+     */
+    private static final class WalkTask extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path root;
+        private final transient Path directory;
+        private final int depth;
+        private final transient WalkState state;
+
+        private WalkTask(final Path root, final Path directory, final int depth, final WalkState state) {
+            this.root = root;
+            this.directory = directory;
+            this.depth = depth;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute() {
+            final List<WalkTask> subTasks = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.directory)) {
+                for(Path entry : entries){
+                    if(this.state.isStopped()){
+                        break;
+                    }
+
+                    final BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    }
+                    catch (final IOException e) {
+                        continue;
+                    }
+
+                    this.state.accept(new FileEntry(entry, this.root.relativize(entry), attrs));
+                    if(attrs.isDirectory() && this.depth < this.state.options.getMaxDepth()){
+                        subTasks.add(new WalkTask(this.root, entry, this.depth + 1, this.state));
+                    }
+                }
+            }
+            catch (final IOException e) {
+                /*
+                Unreadable directory : skipped like in the sequential walk
+                 */
+            }
+
+            invokeAll(subTasks);
+        }
+    }
+
+    /*
+    Counters, limit and sort buffer shared by the walkers.
+    With a limit, the sort buffer is a heap holding only the best entries found so far, worst on top
+     */
+    private static final class WalkState {
+
+        /*
+        Above this limit, every entry is kept and sorted once the walk is over
+         */
+        private static final long MAX_HEAP_LIMIT = 1 << 16;
+
+        private final ListOptions options;
+        private final Consumer<FileEntry> consumer;
+        private final Comparator<FileEntry> order;
+        private final List<FileEntry> sorted;
+        private final PriorityQueue<FileEntry> best;
+        private final AtomicLong accepted;
+        private final LongAdder files;
+        private final LongAdder directories;
+        private final LongAdder bytes;
+        private volatile boolean stopped;
+
+        private WalkState(final ListOptions options, final Consumer<FileEntry> consumer) {
+            this.options = options;
+            this.consumer = consumer;
+            this.order = options.getSort() != FileSort.NONE ? comparator(options.getSort()) : null;
+            final boolean bounded = this.order != null && options.getLimit() <= MAX_HEAP_LIMIT;
+            this.sorted = this.order != null && !bounded ? new ArrayList<>() : null;
+            this.best = bounded ? new PriorityQueue<>(this.order.reversed()) : null;
+            this.accepted = new AtomicLong();
+            this.files = new LongAdder();
+            this.directories = new LongAdder();
+            this.bytes = new LongAdder();
+        }
+
+        private void accept(final FileEntry entry) {
+            if(this.best != null){
+                synchronized (this.best) {
+                    this.best.add(entry);
+                    if(this.best.size() > this.options.getLimit()){
+                        this.best.poll();
+                    }
+                }
+                return;
+            }
+            if(this.sorted != null){
+                synchronized (this.sorted) {
+                    this.sorted.add(entry);
+                }
+                return;
+            }
+
+            final long count = this.accepted.incrementAndGet();
+            if(count > this.options.getLimit()){
+                this.stopped = true;
+                return;
+            }
+            if(count == this.options.getLimit()){
+                this.stopped = true;
+            }
+            emit(entry);
         }
 
-        System.out.println(MiniColor.color("Content of:" + path, MiniColor.AQUA));
-        for(File file : folder.listFiles()){
-            if(file.isDirectory()) {
-                System.out.println(MiniColor.color("[DIR] " + file.getName(), MiniColor.BLUE));
+        private void emit(final FileEntry entry) {
+            if(entry.isDirectory()){
+                this.directories.increment();
             }
             else {
-                System.out.println(file.getName());
+                this.files.increment();
+                this.bytes.add(entry.getSize());
+            }
+            this.consumer.accept(entry);
+        }
+
+        private void flushSorted() {
+            if(this.order == null){
+                return;
+            }
+
+            final List<FileEntry> entries = this.best != null ? new ArrayList<>(this.best) : this.sorted;
+            entries.sort(this.order);
+            final long limit = Math.min(this.options.getLimit(), entries.size());
+            for(int i = 0; i < limit; i++){
+                emit(entries.get(i));
             }
         }
+
+        private boolean isStopped() {
+            return this.stopped;
+        }
+
+        private static Comparator<FileEntry> comparator(final FileSort sort) {
+            switch(sort){
+                case SIZE:
+                    return Comparator.comparingLong(FileEntry::getSize).reversed();
+
+                case MODIFIED:
+                    return Comparator.comparingLong(FileEntry::getLastModifiedMillis).reversed();
+
+                default:
+                    return Comparator.comparing(entry -> entry.getRelativePath().toString());
+            }
+        }
+    }
+
+    /**
+     * Paths starting with a typed path, e.g. "src/ma" -> "src/main/".
+     * Directory listings are cached and only read again when the directory changes.
+     * @param partial typed path, relative to the working directory or absolute
+     * @param limit max paths
+     * @return sorted paths, directories end with '/'
+     */
+    public static List<String> completePath(final String partial, final int limit) {
+        final int slash = Math.max(partial.lastIndexOf('/'), partial.lastIndexOf(File.separatorChar));
+        final String directory = partial.substring(0, slash + 1);
+        final String name = partial.substring(slash + 1);
+
+        final Path path;
+        try {
+            path = directory.isEmpty() ? Paths.get("") : Paths.get(directory);
+        }
+        catch (final InvalidPathException e) {
+            return List.of();
+        }
+
+        final List<String> names = DIRECTORIES.complete(path.toAbsolutePath().normalize(), name, limit);
+        final List<String> paths = new ArrayList<>(names.size());
+        for(String found : names){
+            paths.add(directory + found);
+        }
+        return paths;
     }
 
     /**
@@ -44,7 +348,8 @@ public class FileCLI {
     public static void createFile(final String path, final String content) {
         try (FileWriter writer = new FileWriter(path)) {
             writer.write(content);
-            System.out.println(MiniColor.color("File created successfully!", MiniColor.GREEN));
+            ShellOutput.println(MiniColor.color("File created successfully!", MiniColor.GREEN));
+            ShellOutput.commit();
         }
         catch (final IOException e) {
             MiniCLI.error("Error creating file");
@@ -63,7 +368,8 @@ public class FileCLI {
         }
 
         if(file.delete()){
-            System.out.println(MiniColor.color("File successfully deleted!", MiniColor.GREEN));
+            ShellOutput.println(MiniColor.color("File successfully deleted!", MiniColor.GREEN));
+            ShellOutput.commit();
         }
         else {
             MiniCLI.error("Unable to delete the file!");
@@ -84,4 +390,326 @@ public class FileCLI {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Stream the lines of a file, read as UTF-8 through a large buffer.
+     * Only the current line is held in memory, so any file size works.
+     * Close the stream (try-with-resources) to release the file.
+     * @param path file path to read
+     * @return lazy stream of lines or null if error
+     */
+    public static Stream<String> lines(final String path) {
+        try {
+            final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Files.newInputStream(Paths.get(path)), StandardCharsets.UTF_8), STREAM_BUFFER_SIZE);
+
+            return reader.lines().onClose(() -> {
+                try {
+                    reader.close();
+                }
+                catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error reading file");
+            return null;
+        }
+    }
+
+    /**
+     * Memory-map a file window by window, for files larger than the heap.
+     * Each window is handed to the consumer as a read-only buffer,
+     * windows are cut at chunk boundaries, not at line ends.
+     * @param path file path to read
+     * @param chunkSize window size in bytes
+     * @param consumer receives each window, returns false to stop
+     * @return true if the whole file was read
+     */
+    public static boolean forEachChunk(final String path, final int chunkSize, final ChunkConsumer consumer) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long position = 0;
+
+            while(position < size){
+                final long length = Math.min(chunkSize, size - position);
+                final MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                if(!consumer.accept(position, chunk)){
+                    return false;
+                }
+                position += length;
+            }
+            return true;
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error reading file");
+            return false;
+        }
+    }
+
+    public static boolean forEachChunk(final String path, final ChunkConsumer consumer) {
+        return forEachChunk(path, DEFAULT_MAP_CHUNK_SIZE, consumer);
+    }
+
+    /**
+     * Read the first lines of a file, without reading the rest.
+     * @param path file path to read
+     * @param count number of lines
+     * @return lines or null if error
+     */
+    public static List<String> head(final String path, final int count) {
+        try (Stream<String> lines = lines(path)) {
+            if(lines == null){
+                return null;
+            }
+            return lines.limit(count).toList();
+        }
+        catch (final UncheckedIOException e) {
+            MiniCLI.error("Error reading file");
+            return null;
+        }
+    }
+
+    /**
+     * Read the last lines of a file, seeking backwards from its end
+     * instead of scanning it from the start.
+     * @param path file path to read
+     * @param count number of lines
+     * @return lines or null if error
+     */
+    public static List<String> tail(final String path, final int count) {
+        if(count <= 0){
+            return Collections.emptyList();
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long start = tailStart(channel, size, count);
+            return splitLines(readRange(channel, start, size - start));
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error reading file");
+            return null;
+        }
+    }
+
+    /**
+     * Seek backwards from the given end to the start of the last lines
+     * @param channel open file
+     * @param size end of the file to consider
+     * @param count number of lines
+     * @return offset of the first of the last lines, 0 if the file is shorter
+     */
+    static long tailStart(final FileChannel channel, final long size, final int count) throws IOException {
+        if(count <= 0){
+            return size;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(SEEK_BUFFER_SIZE);
+        long position = size;
+        int newLines = 0;
+
+        while(position > 0){
+            final int length = (int) Math.min(buffer.capacity(), position);
+            position -= length;
+            buffer.clear().limit(length);
+            readFully(channel, buffer, position);
+
+            for(int i = length - 1; i >= 0; i--){
+                /*
+                The line break ending the file does not start a new line
+                 */
+                if(buffer.get(i) == '\n' && position + i != size - 1 && ++newLines == count){
+                    return position + i + 1;
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Write the last lines of a file, then every line appended to it, tail -f style.
+     * Appends are picked up from WatchService notifications and only the new bytes are read.
+     * A truncated file is read again from its start and a rotated file (renamed, then created again)
+     * is followed under its name. Blocks until the thread is interrupted, run it in a job.
+     * @param path file path to follow, it may not exist yet
+     * @param lastLines number of existing lines to write first
+     * @param sink receives the lines
+     * @return false if the file could not be followed
+     * @throws InterruptedException once interrupted, the normal way to stop
+     */
+    public static boolean follow(final String path, final int lastLines, final LineSink sink) throws InterruptedException {
+        final Path file = Paths.get(path);
+        if(Files.isDirectory(file)){
+            MiniCLI.error("Cannot follow a folder!");
+            return false;
+        }
+
+        try {
+            new FileFollower(file, sink).run(lastLines);
+            return true;
+        }
+        catch (final ClosedByInterruptException e) {
+            throw new InterruptedException();
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error following file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Report the files created, modified and deleted in a folder, or the changes of a single file.
+     * Blocks until the thread is interrupted, run it in a job.
+     * @param path folder or file to watch
+     * @param recursive true to also watch the sub-directories, including the ones created later
+     * @param consumer receives each change and the path concerned
+     * @return false if the path could not be watched, true once the watched folder is gone
+     * @throws InterruptedException once interrupted, the normal way to stop
+     */
+    public static boolean watch(final String path, final boolean recursive, final BiConsumer<FileEvent, Path> consumer) throws InterruptedException {
+        final Path root = Paths.get(path).toAbsolutePath();
+        if(!Files.exists(root)){
+            MiniCLI.error("File not found!");
+            return false;
+        }
+
+        /*
+        A single file is watched through its folder
+         */
+        final boolean folder = Files.isDirectory(root);
+        final Path only = folder ? null : root.getFileName();
+
+        try (WatchService watcher = root.getFileSystem().newWatchService()) {
+            final Map<WatchKey, Path> keys = new HashMap<>();
+            register(watcher, keys, folder ? root : root.getParent(), folder && recursive);
+
+            while(!keys.isEmpty()){
+                final WatchKey key = watcher.take();
+                final Path directory = keys.get(key);
+
+                for(WatchEvent<?> event : key.pollEvents()){
+                    final FileEvent type = FileEvent.of(event.kind());
+                    if(type == null || (only != null && !only.equals(event.context()))){
+                        continue;
+                    }
+
+                    final Path changed = directory.resolve((Path) event.context());
+                    consumer.accept(type, changed);
+
+                    if(recursive && folder && type == FileEvent.CREATED && Files.isDirectory(changed, LinkOption.NOFOLLOW_LINKS)){
+                        register(watcher, keys, changed, true);
+                    }
+                }
+
+                if(!key.reset()){
+                    keys.remove(key);
+                }
+            }
+            return true;
+        }
+        catch (final ClosedWatchServiceException e) {
+            throw new InterruptedException();
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error watching file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void register(final WatchService watcher, final Map<WatchKey, Path> keys, final Path directory, final boolean recursive) throws IOException {
+        if(!recursive){
+            keys.put(directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), directory);
+            return;
+        }
+
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                register(watcher, keys, dir, false);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Read a byte range of a file, seeking straight to it.
+     * @param path file path to read
+     * @param offset first byte
+     * @param length number of bytes, capped to the end of the file
+     * @return range decoded as UTF-8, or null if error or if the offset or the length is negative
+     */
+    public static String readRange(final String path, final long offset, final int length) {
+        if(offset < 0 || length < 0){
+            MiniCLI.error("Invalid range: offset " + offset + ", length " + length);
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            final long available = Math.max(0, channel.size() - offset);
+            return readRange(channel, offset, Math.min(length, available));
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error reading file");
+            return null;
+        }
+    }
+
+    private static String readRange(final FileChannel channel, final long offset, final long length) throws IOException {
+        if(length > Integer.MAX_VALUE - 8){
+            throw new IOException("Range too large: " + length + " bytes");
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        readFully(channel, buffer, offset);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()){
+            final int read = channel.read(buffer, position);
+            if(read < 0){
+                break;
+            }
+            position += read;
+        }
+    }
+
+    private static List<String> splitLines(final String text) {
+        final List<String> lines = new ArrayList<>();
+        int start = 0;
+        while(start < text.length()){
+            int end = text.indexOf('\n', start);
+            if(end < 0){
+                end = text.length();
+            }
+
+            final int lineEnd = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            lines.add(text.substring(start, lineEnd));
+            start = end + 1;
+        }
+        return lines;
+    }
+
+    /**
+     * Receives the memory-mapped windows of a file
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+
+        /**
+         * @param position offset of the window in the file
+         * @param chunk read-only window
+         * @return false to stop reading
+         */
+        boolean accept(final long position, final ByteBuffer chunk);
+    }
+}
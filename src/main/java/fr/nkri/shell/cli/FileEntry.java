@@ -0,0 +1,54 @@
+package fr.nkri.shell.cli;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * One entry found by FileCLI.walk, with the attributes read along the way
+ */
+public class FileEntry {
+
+    private final Path path;
+    private final Path relativePath;
+    private final BasicFileAttributes attributes;
+
+    /**
+     * File entry
+     * @param path entry path
+     * @param relativePath path from the listed folder
+     * @param attributes attributes read during the walk
+     */
+    public FileEntry(final Path path, final Path relativePath, final BasicFileAttributes attributes) {
+        this.path = path;
+        this.relativePath = relativePath;
+        this.attributes = attributes;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Path getRelativePath() {
+        return relativePath;
+    }
+
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+    public boolean isDirectory() {
+        return attributes.isDirectory();
+    }
+
+    public long getSize() {
+        return attributes.size();
+    }
+
+    public long getLastModifiedMillis() {
+        return attributes.lastModifiedTime().toMillis();
+    }
+
+    public BasicFileAttributes getAttributes() {
+        return attributes;
+    }
+}
@@ -0,0 +1,202 @@
+package fr.nkri.shell.cli;
+
+import fr.nkri.shell.io.LineSink;
+import fr.nkri.shell.io.ShellOutput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a file open and writes the lines appended to it, tail -f style.
+ * The folder of the file is watched so appends are read as soon as they are notified,
+ * with a periodic check in case a notification is missed or the file system does not send any.
+ * Only the bytes after the last read position are read.
+ * Rotation is handled : a truncated file is read again from its start,
+ * a file replaced by a new one (rename + create) is drained then the new one is followed.
+ */
+final class FileFollower {
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+    private final Path file;
+    private final LineSink sink;
+    private final ByteBuffer buffer;
+
+    /*
+    Bytes of the line being read, until its line break is appended
+     */
+    private byte[] line;
+    private int lineLength;
+
+    /*
+    Followed file, null while it does not exist
+     */
+    private FileChannel channel;
+    private Object fileKey;
+    private long position;
+
+    FileFollower(final Path file, final LineSink sink) {
+        this.file = file.toAbsolutePath();
+        this.sink = sink;
+        this.buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        this.line = new byte[256];
+    }
+
+    /**
+     * Follow the file until the thread is interrupted
+     * @param lastLines number of existing lines to write first
+     */
+    void run(final int lastLines) throws IOException, InterruptedException {
+        final Path directory = this.file.getParent();
+        final Path name = this.file.getFileName();
+
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+            open(lastLines);
+            while(true){
+                readAppended();
+
+                /*
+                Show the lines now, the shell may be waiting at its prompt
+                 */
+                ShellOutput.flush();
+
+                final WatchKey key = watcher.poll(CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                boolean recreated = false;
+                if(key != null){
+                    boolean concerned = false;
+                    for(WatchEvent<?> event : key.pollEvents()){
+                        if(event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())){
+                            concerned = true;
+                            recreated |= event.kind() == StandardWatchEventKinds.ENTRY_CREATE;
+                        }
+                    }
+
+                    if(!key.reset()){
+                        /*
+                        The folder itself is gone
+                         */
+                        return;
+                    }
+                    if(!concerned){
+                        continue;
+                    }
+                }
+
+                checkRotation(recreated);
+            }
+        }
+        finally {
+            close();
+        }
+    }
+
+    /*
+    Open the file, starting at its last lines, if it exists
+     */
+    private void open(final int lastLines) throws IOException {
+        final BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(this.file, BasicFileAttributes.class);
+        }
+        catch (final NoSuchFileException e) {
+            return;
+        }
+
+        this.channel = FileChannel.open(this.file, StandardOpenOption.READ);
+        this.fileKey = attrs.fileKey();
+        this.position = lastLines < 0 ? 0 : FileCLI.tailStart(this.channel, this.channel.size(), lastLines);
+    }
+
+    /*
+    Detect a truncated or replaced file
+     */
+    private void checkRotation(final boolean recreated) throws IOException, InterruptedException {
+        final BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(this.file, BasicFileAttributes.class);
+        }
+        catch (final NoSuchFileException e) {
+            /*
+            Renamed or deleted : the open channel still reads what the writer appends, until a new file shows up
+             */
+            return;
+        }
+
+        if(this.channel == null){
+            open(-1);
+            return;
+        }
+
+        final boolean replaced = attrs.fileKey() != null ? !attrs.fileKey().equals(this.fileKey) : recreated;
+        if(replaced){
+            readAppended();
+            flushLine();
+            close();
+            open(-1);
+        }
+        else if(this.channel.size() < this.position){
+            flushLine();
+            this.position = 0;
+        }
+    }
+
+    /*
+    Read everything after the current position, writing each complete line
+     */
+    private void readAppended() throws IOException, InterruptedException {
+        if(this.channel == null){
+            return;
+        }
+
+        int read;
+        while((read = this.channel.read(this.buffer.clear(), this.position)) > 0){
+            this.position += read;
+            this.buffer.flip();
+
+            while(this.buffer.hasRemaining()){
+                final byte b = this.buffer.get();
+                if(b == '\n'){
+                    writeLine();
+                    continue;
+                }
+
+                if(this.lineLength == this.line.length){
+                    this.line = Arrays.copyOf(this.line, this.line.length * 2);
+                }
+                this.line[this.lineLength++] = b;
+            }
+        }
+    }
+
+    /*
+    Write the line without break left by a file that stopped being followed
+     */
+    private void flushLine() throws InterruptedException {
+        if(this.lineLength > 0){
+            writeLine();
+        }
+    }
+
+    private void writeLine() throws InterruptedException {
+        final int length = this.lineLength > 0 && this.line[this.lineLength - 1] == '\r' ? this.lineLength - 1 : this.lineLength;
+        this.lineLength = 0;
+        this.sink.write(new String(this.line, 0, length, StandardCharsets.UTF_8));
+    }
+
+    private void close() throws IOException {
+        if(this.channel != null){
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package fr.nkri.shell.cli;
+
+import java.util.List;
+
+/**
+ * One row failing a pattern, found by ValidationCLI.validate
+ */
+public class InvalidRow {
+
+    private final long lineNumber;
+    private final String line;
+    private final List<ValidationRule> failed;
+
+    public InvalidRow(final long lineNumber, final String line, final List<ValidationRule> failed) {
+        this.lineNumber = lineNumber;
+        this.line = line;
+        this.failed = failed;
+    }
+
+    /**
+     * @return line number in the file, starting at 1, header included
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * @return rules the row does not match
+     */
+    public List<ValidationRule> getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder labels = new StringBuilder();
+        for(ValidationRule rule : this.failed){
+            labels.append(labels.length() == 0 ? "" : ", ").append(rule.getLabel());
+        }
+        return lineNumber + ": " + line + " [" + labels + "]";
+    }
+}
@@ -0,0 +1,101 @@
+package fr.nkri.shell.cli;
+
+import fr.nkri.shell.enums.FileSort;
+
+/**
+ * Options of FileCLI.listFiles and FileCLI.walk
+ */
+public class ListOptions {
+
+    private int maxDepth = 1;
+    private boolean parallel;
+    private FileSort sort = FileSort.NONE;
+    private long limit = Long.MAX_VALUE;
+    private boolean summary;
+
+    /**
+     * Go down into sub-directories, without depth limit
+     * @return these options
+     */
+    public ListOptions recursive() {
+        return maxDepth(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxDepth 1 lists the folder content only, 2 adds its sub-directories, etc.
+     * @return these options
+     */
+    public ListOptions maxDepth(final int maxDepth) {
+        if(maxDepth < 1){
+            throw new IllegalArgumentException("Depth must be at least 1!");
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Walk sub-directories in parallel on the fork-join pool, for wide trees.
+     * Entries then come in no particular order unless sorted.
+     * @param parallel true to walk in parallel
+     * @return these options
+     */
+    public ListOptions parallel(final boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Sort the entries, which means collecting them all before printing
+     * @param sort sort order
+     * @return these options
+     */
+    public ListOptions sort(final FileSort sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    /**
+     * @param limit max number of entries
+     * @return these options
+     */
+    public ListOptions limit(final long limit) {
+        if(limit < 1){
+            throw new IllegalArgumentException("Limit must be at least 1!");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @param summary true to print the file count, directory count and total size at the end
+     * @return these options
+     */
+    public ListOptions summary(final boolean summary) {
+        this.summary = summary;
+        return this;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean isRecursive() {
+        return maxDepth > 1;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public FileSort getSort() {
+        return sort;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public boolean isSummary() {
+        return summary;
+    }
+}
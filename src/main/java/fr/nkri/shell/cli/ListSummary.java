@@ -0,0 +1,59 @@
+package fr.nkri.shell.cli;
+
+/**
+ * Totals of a FileCLI.walk
+ */
+public class ListSummary {
+
+    private final long files;
+    private final long directories;
+    private final long totalBytes;
+    private final long elapsedMillis;
+
+    public ListSummary(final long files, final long directories, final long totalBytes, final long elapsedMillis) {
+        this.files = files;
+        this.directories = directories;
+        this.totalBytes = totalBytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    public long getDirectories() {
+        return directories;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return files + " files, " + directories + " directories, " + formatSize(totalBytes) + " in " + elapsedMillis + "ms";
+    }
+
+    /**
+     * @param bytes size in bytes
+     * @return human readable size, e.g. 12.3 MB
+     */
+    public static String formatSize(final long bytes) {
+        if(bytes < 1024){
+            return bytes + " B";
+        }
+
+        final String[] units = {"KB", "MB", "GB", "TB", "PB"};
+        double size = bytes / 1024.0;
+        int unit = 0;
+        while(size >= 1024 && unit < units.length - 1){
+            size /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", size, units[unit]);
+    }
+}
@@ -1,10 +1,20 @@
 package fr.nkri.shell.cli;
 
 import fr.nkri.shell.enums.InputPattern;
+import fr.nkri.shell.io.LineReader;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.io.StyledText;
 import fr.nkri.shell.enums.LogLevel;
 import fr.nkri.shell.enums.MiniColor;
 
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 /**
  * A utility class with many methods to simplify
@@ -12,7 +22,11 @@ import java.util.Scanner;
  */
 public class MiniCLI {
 
-    protected static final Scanner scanner = new Scanner(System.in);
+    /*
+    Compiled regular expressions of promptInput and compile
+     */
+    private static final int MAX_PATTERNS = 256;
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
 
     /**
      * Displays a prompt with several options and returns the user's choice.
@@ -29,21 +43,21 @@ public class MiniCLI {
         int choice = -1;
 
         while (true){
-            System.out.println(message);
+            ShellOutput.println(message);
 
             /*
             Display options index
              */
             for(int i =0; i < options.length; i++){
-                System.out.println((i + 1) + ". " + options[i]);
+                ShellOutput.println((i + 1) + ". " + options[i]);
             }
 
-            System.out.println("Enter the number of your choice: ");
+            ShellOutput.println("Enter the number of your choice: ");
 
             /*
             Check if options is a number
              */
-            final String input = scanner.nextLine();
+            final String input = readLine();
             try{
                 choice = Integer.parseInt(input);
 
@@ -54,11 +68,11 @@ public class MiniCLI {
                     break;
                 }
                 else{
-                    System.out.println("Please enter a number between 1 and " + options.length);
+                    ShellOutput.println("Please enter a number between 1 and " + options.length);
                 }
             }
             catch (final NumberFormatException e){
-                System.out.println("Please enter a valid number !");
+                ShellOutput.println("Please enter a valid number !");
             }
         }
 
@@ -72,8 +86,8 @@ public class MiniCLI {
      */
     public static boolean promptYesNo(final String message){
         while (true){
-            System.out.println(message + " (Y/N) : ");
-            final String input = scanner.nextLine().trim().toLowerCase();
+            ShellOutput.println(message + " (Y/N) : ");
+            final String input = readLine().trim().toLowerCase();
 
             /*
             Check input
@@ -85,7 +99,7 @@ public class MiniCLI {
                 return false;
             }
             else {
-                System.out.println("Please enter Y (Yes) or N (No) !");
+                ShellOutput.println("Please enter Y (Yes) or N (No) !");
             }
         }
     }
@@ -100,28 +114,51 @@ public class MiniCLI {
      */
     public static String promptInput(final String message, final String regex, final String errorMsg) {
         while (true) {
-            System.out.println(message + ": ");
+            ShellOutput.println(message + ": ");
 
-            final String input = scanner.nextLine();
-            if (input.matches(regex)){
+            final String input = readLine();
+            if (compile(regex).matcher(input).matches()){
                 return input;
             }
 
-            System.out.println(errorMsg);
+            ShellOutput.println(errorMsg);
         }
     }
 
     public static String promptInput(final String message, final InputPattern regex, final String errorMsg) {
         while (true) {
-            System.out.println(message + ": ");
+            ShellOutput.println(message + ": ");
 
-            final String input = scanner.nextLine();
-            if (input.matches(regex.getRegex())){
+            final String input = readLine();
+            if (regex.matches(input)){
                 return input;
             }
 
-            System.out.println(MiniColor.color(errorMsg, MiniColor.RED));
+            ShellOutput.println(MiniColor.color(errorMsg, MiniColor.RED));
+        }
+    }
+
+    /**
+     * Compiled pattern of a regular expression, kept for the next calls
+     * @param regex regular expression
+     * @return compiled pattern
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+     */
+    public static Pattern compile(final String regex) {
+        final Pattern cached = PATTERNS.get(regex);
+        if(cached != null){
+            return cached;
+        }
+
+        /*
+        Expressions usually come from the code, the cache is only reset if something keeps building new ones
+         */
+        if(PATTERNS.size() >= MAX_PATTERNS){
+            PATTERNS.clear();
         }
+        final Pattern pattern = Pattern.compile(regex);
+        PATTERNS.put(regex, pattern);
+        return pattern;
     }
 
     public static String promptEmail(final String message, final String errorMsg) {
@@ -148,9 +185,10 @@ public class MiniCLI {
         final String borderTop = "╔" + "═".repeat(title.length() + 4) + "╗";
         final String borderBottom = "╚" + "═".repeat(title.length() + 4) + "╝";
 
-        System.out.println(borderColor + borderTop);
-        System.out.println("║  " + titleColor + title + borderColor + "  ║");
-        System.out.println(borderBottom + MiniColor.RESET);
+        ShellOutput.println(borderColor + borderTop);
+        ShellOutput.println("║  " + titleColor + title + borderColor + "  ║");
+        ShellOutput.println(borderBottom + MiniColor.RESET);
+        ShellOutput.commit();
     }
 
     public static void printTitle(final String title, final MiniColor titleColor, final MiniColor borderColor) {
@@ -167,29 +205,84 @@ public class MiniCLI {
      * @param level log level
      */
     public static void log(final String message, final LogLevel level){
+        final StyledText line = StyledText.local();
         switch(level){
             case INFO:
-                System.out.println(MiniColor.BLUE + "[INFO] " + message + MiniColor.RESET);
+                line.style(MiniColor.BLUE).append("[INFO] ");
                 break;
 
             case SUCCESS:
-                System.out.println(MiniColor.GREEN + "[SUCCESS] " + message + MiniColor.RESET);
+                line.style(MiniColor.GREEN).append("[SUCCESS] ");
                 break;
 
             case WARN:
-                System.out.println(MiniColor.YELLOW + "[WARN] " + message + MiniColor.RESET);
+                line.style(MiniColor.YELLOW).append("[WARN] ");
                 break;
 
             case ERROR:
-                System.out.println(MiniColor.RED + "[ERROR] " + message + MiniColor.RESET);
+                line.style(MiniColor.RED).append("[ERROR] ");
                 break;
 
             default:
-                System.out.println(message);
+                break;
         }
+
+        line.append(message).println();
+
+        ShellOutput.commit();
     }
 
     public static void error(final String message){
-        System.out.println(MiniColor.color(message, MiniColor.RED));
+        StyledText.local().append(message, MiniColor.RED).println();
+        ShellOutput.commit();
+    }
+
+    /**
+     * Requests a line, giving up after a delay
+     *
+     * @param message message displayed to request input
+     * @param timeout max wait for the line
+     * @param defaultValue value returned if nothing is typed in time
+     * @return typed line or the default value
+     */
+    public static String promptLine(final String message, final Duration timeout, final String defaultValue) {
+        ShellOutput.println(message + ": ");
+        ShellOutput.flush();
+
+        try {
+            final String input = LineReader.current().readLine(timeout);
+            return input != null ? input : defaultValue;
+        }
+        catch (final TimeoutException e) {
+            return defaultValue;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return defaultValue;
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+    Write out pending output, then wait for the user's line, from the input shared with the shell
+    (or the input of the remote session running the command)
+     */
+    private static String readLine(){
+        ShellOutput.flush();
+
+        final String input;
+        try {
+            input = LineReader.current().readLine();
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if(input == null){
+            throw new NoSuchElementException("No line found");
+        }
+        return input;
     }
 }
\ No newline at end of file
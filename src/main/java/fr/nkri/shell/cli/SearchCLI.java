@@ -0,0 +1,465 @@
+package fr.nkri.shell.cli;
+
+import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.io.OutputSink;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.io.StyledText;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parallel content search (grep-like) over a file or a folder tree.
+ * Directories and files are split into fork-join tasks so idle cores steal work,
+ * the pattern is compiled once, and files are scanned as bytes through
+ * direct buffers or memory-mapped windows, never loaded into Strings.
+ */
+public class SearchCLI {
+
+    /*
+    Files up to this size are read into a reusable direct buffer, bigger ones are mapped
+     */
+    private static final int DIRECT_READ_LIMIT = 1 << 20;
+    private static final int MAP_WINDOW_SIZE = 1 << 26;
+    private static final int BINARY_PROBE_SIZE = 8192;
+
+    private static final ThreadLocal<ByteBuffer> readBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(DIRECT_READ_LIMIT));
+
+    /**
+     * Search a file or folder tree and print every matching line as path:line: text
+     * @param pattern text or regular expression to find
+     * @param path file or folder to search
+     * @param options regex, case, limit and depth
+     * @return totals of the search or null if error
+     */
+    public static SearchSummary search(final String pattern, final String path, final SearchOptions options) {
+        /*
+        Matches come from several threads, each printed line is written at once
+         */
+        final OutputSink out = ShellOutput.sink();
+        final SearchSummary summary = search(pattern, path, options, match -> {
+            final StyledText line = StyledText.local()
+                    .append(match.getPath().toString(), MiniColor.LIGHT_PURPLE).append(':')
+                    .style(MiniColor.GREEN).append(match.getLineNumber()).plain()
+                    .append(": ").append(match.getLine()).append('\n');
+            synchronized (out) {
+                out.print(line);
+            }
+        });
+
+        if(summary != null){
+            ShellOutput.println(MiniColor.color(summary.toString(), MiniColor.AQUA));
+        }
+
+        ShellOutput.commit();
+        return summary;
+    }
+
+    /**
+     * Search a file or folder tree, handing every matching line to a consumer.
+     * The consumer is called from several threads.
+     * @param pattern text or regular expression to find
+     * @param path file or folder to search
+     * @param options regex, case, limit and depth
+     * @param consumer receives the matching lines
+     * @return totals of the search or null if error
+     */
+    public static SearchSummary search(final String pattern, final String path, final SearchOptions options, final Consumer<SearchMatch> consumer) {
+        final Path root = Paths.get(path);
+        if(!Files.exists(root)){
+            MiniCLI.error("File not found!");
+            return null;
+        }
+
+        final SearchState state;
+        try {
+            state = new SearchState(pattern, options, consumer);
+        }
+        catch (final IllegalArgumentException e) {
+            MiniCLI.error("Invalid pattern: " + e.getMessage());
+            return null;
+        }
+
+        final long start = System.nanoTime();
+        if(Files.isDirectory(root)){
+            ForkJoinPool.commonPool().invoke(new DirectoryTask(root, 1, state));
+        }
+        else {
+            ForkJoinPool.commonPool().invoke(new FileTask(root, state));
+        }
+
+        return new SearchSummary(state.files.sum(), state.bytes.sum(), Math.min(state.matches.get(), options.getMaxResults()),
+                state.isStopped(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /*
+    Lists one directory, forking a task per file and per sub-directory
+     */
+    private static final class DirectoryTask extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+        private final int depth;
+        private final transient SearchState state;
+
+        private DirectoryTask(final Path directory, final int depth, final SearchState state) {
+            this.directory = directory;
+            this.depth = depth;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute() {
+            final List<RecursiveAction> tasks = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.directory)) {
+                for(Path entry : entries){
+                    if(this.state.isStopped()){
+                        break;
+                    }
+
+                    final BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    }
+                    catch (final IOException e) {
+                        continue;
+                    }
+
+                    if(attrs.isDirectory()){
+                        if(this.depth < this.state.options.getMaxDepth()){
+                            tasks.add(new DirectoryTask(entry, this.depth + 1, this.state));
+                        }
+                    }
+                    else if(attrs.isRegularFile() && attrs.size() > 0){
+                        tasks.add(new FileTask(entry, this.state));
+                    }
+                }
+            }
+            catch (final IOException e) {
+                /*
+                Unreadable directory : skipped
+                 */
+            }
+
+            invokeAll(tasks);
+        }
+    }
+
+    /*
+    Scans one file, window by window
+     */
+    private static final class FileTask extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path file;
+        private final transient SearchState state;
+
+        private FileTask(final Path file, final SearchState state) {
+            this.file = file;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.state.isStopped()){
+                return;
+            }
+
+            try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+                final long size = channel.size();
+                final LineScanner scanner = new LineScanner(this.file, this.state);
+
+                if(size <= DIRECT_READ_LIMIT){
+                    final ByteBuffer buffer = readBuffers.get();
+                    buffer.clear();
+                    while(buffer.position() < size && channel.read(buffer, buffer.position()) >= 0){
+                    }
+                    buffer.flip();
+
+                    if(this.state.options.isBinaryFiles() || !isBinary(buffer)){
+                        scanner.scan(buffer, true);
+                    }
+                }
+                else {
+                    long position = 0;
+                    boolean first = true;
+                    while(position < size && !this.state.isStopped()){
+                        final ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_SIZE, size - position));
+                        if(first && !this.state.options.isBinaryFiles() && isBinary(window)){
+                            return;
+                        }
+                        first = false;
+
+                        final boolean last = position + window.limit() >= size;
+                        position += scanner.scan(window, last);
+                    }
+                }
+
+                this.state.files.increment();
+                this.state.bytes.add(size);
+            }
+            catch (final IOException e) {
+                /*
+                Unreadable file : skipped
+                 */
+            }
+        }
+
+        private static boolean isBinary(final ByteBuffer buffer) {
+            final int probe = Math.min(buffer.limit(), BINARY_PROBE_SIZE);
+            for(int i = 0; i < probe; i++){
+                if(buffer.get(i) == 0){
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /*
+    Finds the matching lines of a byte window, keeping track of line numbers
+     */
+    private static final class LineScanner {
+
+        private final Path file;
+        private final SearchState state;
+        private final Matcher matcher;
+        private CharBuffer chars;
+        private long lineNumber;
+
+        private LineScanner(final Path file, final SearchState state) {
+            this.file = file;
+            this.state = state;
+            this.matcher = state.pattern != null ? state.pattern.matcher("") : null;
+            this.chars = CharBuffer.allocate(256);
+        }
+
+        /**
+         * Scan the complete lines of a window
+         * @param window bytes to scan
+         * @param last true if the window ends the file, its last line is then complete
+         * @return number of bytes consumed, up to the last line break unless last
+         */
+        private int scan(final ByteBuffer window, final boolean last) {
+            int end = window.limit();
+            if(!last){
+                int lastBreak = end - 1;
+                while(lastBreak >= 0 && window.get(lastBreak) != '\n'){
+                    lastBreak--;
+                }
+
+                /*
+                A single line longer than the window is scanned in pieces
+                 */
+                end = lastBreak >= 0 ? lastBreak + 1 : end;
+            }
+
+            if(this.matcher == null){
+                scanLiteral(window, end);
+            }
+            else {
+                scanRegex(window, end);
+            }
+            return end;
+        }
+
+        /*
+        Jump from one occurrence of the literal to the next, only counting line breaks in between
+         */
+        private void scanLiteral(final ByteBuffer window, final int end) {
+            final byte[] needle = this.state.literal;
+            int counted = 0;
+            int lineStart = 0;
+            int found = indexOf(window, needle, 0, end);
+
+            while(found >= 0 && !this.state.isStopped()){
+                for(int i = counted; i < found; i++){
+                    if(window.get(i) == '\n'){
+                        this.lineNumber++;
+                        lineStart = i + 1;
+                    }
+                }
+
+                final int lineEnd = lineEnd(window, found, end);
+                emit(window, lineStart, lineEnd);
+
+                counted = Math.min(lineEnd + 1, end);
+                if(lineEnd < end){
+                    this.lineNumber++;
+                }
+                lineStart = counted;
+                found = indexOf(window, needle, counted, end);
+            }
+
+            for(int i = counted; i < end; i++){
+                if(window.get(i) == '\n'){
+                    this.lineNumber++;
+                }
+            }
+        }
+
+        /*
+        Decode and match every line
+         */
+        private void scanRegex(final ByteBuffer window, final int end) {
+            int lineStart = 0;
+            while(lineStart < end && !this.state.isStopped()){
+                final int lineEnd = lineEnd(window, lineStart, end);
+                if(this.matcher.reset(decode(window, lineStart, lineEnd)).find()){
+                    emit(window, lineStart, lineEnd);
+                }
+
+                if(lineEnd < end){
+                    this.lineNumber++;
+                }
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        private void emit(final ByteBuffer window, final int lineStart, final int lineEnd) {
+            if(this.state.matches.incrementAndGet() > this.state.options.getMaxResults()){
+                this.state.stop();
+                return;
+            }
+
+            final byte[] bytes = new byte[trimmedEnd(window, lineStart, lineEnd) - lineStart];
+            window.get(lineStart, bytes);
+            this.state.consumer.accept(new SearchMatch(this.file, this.lineNumber + 1, new String(bytes, StandardCharsets.UTF_8)));
+
+            if(this.state.matches.get() >= this.state.options.getMaxResults()){
+                this.state.stop();
+            }
+        }
+
+        /*
+        ASCII lines are copied as is, others go through the UTF-8 decoder
+         */
+        private CharSequence decode(final ByteBuffer window, final int lineStart, final int lineEnd) {
+            final int end = trimmedEnd(window, lineStart, lineEnd);
+            final int length = end - lineStart;
+            if(this.chars.capacity() < length){
+                this.chars = CharBuffer.allocate(Math.max(length, this.chars.capacity() * 2));
+            }
+
+            this.chars.clear();
+            for(int i = lineStart; i < end; i++){
+                final byte b = window.get(i);
+                if(b < 0){
+                    final byte[] bytes = new byte[length];
+                    window.get(lineStart, bytes);
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+                this.chars.put((char) b);
+            }
+
+            return this.chars.flip();
+        }
+
+        private static int lineEnd(final ByteBuffer window, final int from, final int end) {
+            for(int i = from; i < end; i++){
+                if(window.get(i) == '\n'){
+                    return i;
+                }
+            }
+            return end;
+        }
+
+        private static int trimmedEnd(final ByteBuffer window, final int lineStart, final int lineEnd) {
+            return lineEnd > lineStart && window.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+        }
+
+        private static int indexOf(final ByteBuffer window, final byte[] needle, final int from, final int end) {
+            final byte first = needle[0];
+            final int last = end - needle.length;
+
+            search:
+            for(int i = from; i <= last; i++){
+                if(window.get(i) != first){
+                    continue;
+                }
+                for(int j = 1; j < needle.length; j++){
+                    if(window.get(i + j) != needle[j]){
+                        continue search;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+    }
+
+    /*
+    Compiled pattern, limit and counters shared by all tasks
+     */
+    private static final class SearchState {
+
+        private final SearchOptions options;
+        private final Consumer<SearchMatch> consumer;
+
+        /*
+        Either the literal bytes or the compiled pattern is set
+         */
+        private final byte[] literal;
+        private final Pattern pattern;
+
+        private final AtomicLong matches;
+        private final LongAdder files;
+        private final LongAdder bytes;
+        private volatile boolean stopped;
+
+        private SearchState(final String text, final SearchOptions options, final Consumer<SearchMatch> consumer) {
+            if(text.isEmpty()){
+                throw new IllegalArgumentException("empty pattern");
+            }
+
+            this.options = options;
+            this.consumer = consumer;
+
+            if(!options.isRegex() && !options.isIgnoreCase()){
+                this.literal = text.getBytes(StandardCharsets.UTF_8);
+                this.pattern = null;
+            }
+            else {
+                int flags = options.isRegex() ? 0 : Pattern.LITERAL;
+                if(options.isIgnoreCase()){
+                    flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                }
+                this.literal = null;
+                this.pattern = Pattern.compile(text, flags);
+            }
+
+            this.matches = new AtomicLong();
+            this.files = new LongAdder();
+            this.bytes = new LongAdder();
+        }
+
+        private void stop() {
+            this.stopped = true;
+        }
+
+        private boolean isStopped() {
+            return this.stopped;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package fr.nkri.shell.cli;
+
+import java.nio.file.Path;
+
+/**
+ * One matching line found by SearchCLI.search
+ */
+public class SearchMatch {
+
+    private final Path path;
+    private final long lineNumber;
+    private final String line;
+
+    public SearchMatch(final Path path, final long lineNumber, final String line) {
+        this.path = path;
+        this.lineNumber = lineNumber;
+        this.line = line;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return line number, starting at 1
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return path + ":" + lineNumber + ":" + line;
+    }
+}
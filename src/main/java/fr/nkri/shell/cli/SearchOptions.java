@@ -0,0 +1,82 @@
+package fr.nkri.shell.cli;
+
+/**
+ * Options of SearchCLI.search
+ */
+public class SearchOptions {
+
+    private boolean regex;
+    private boolean ignoreCase;
+    private long maxResults = Long.MAX_VALUE;
+    private int maxDepth = Integer.MAX_VALUE;
+    private boolean binaryFiles;
+
+    /**
+     * @param regex true to read the pattern as a regular expression, false for a literal text
+     * @return these options
+     */
+    public SearchOptions regex(final boolean regex) {
+        this.regex = regex;
+        return this;
+    }
+
+    /**
+     * @param ignoreCase true to ignore the case
+     * @return these options
+     */
+    public SearchOptions ignoreCase(final boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        return this;
+    }
+
+    /**
+     * Stop the whole search once this many matching lines are found
+     * @param maxResults max number of matching lines
+     * @return these options
+     */
+    public SearchOptions maxResults(final long maxResults) {
+        this.maxResults = maxResults;
+        return this;
+    }
+
+    /**
+     * @param maxDepth 1 searches the folder files only, 2 adds its sub-directories, etc.
+     * @return these options
+     */
+    public SearchOptions maxDepth(final int maxDepth) {
+        if(maxDepth < 1){
+            throw new IllegalArgumentException("Depth must be at least 1!");
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * @param binaryFiles true to also search files holding NUL bytes
+     * @return these options
+     */
+    public SearchOptions binaryFiles(final boolean binaryFiles) {
+        this.binaryFiles = binaryFiles;
+        return this;
+    }
+
+    public boolean isRegex() {
+        return regex;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    public long getMaxResults() {
+        return maxResults;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean isBinaryFiles() {
+        return binaryFiles;
+    }
+}
@@ -0,0 +1,49 @@
+package fr.nkri.shell.cli;
+
+/**
+ * Totals of a SearchCLI.search
+ */
+public class SearchSummary {
+
+    private final long files;
+    private final long bytes;
+    private final long matches;
+    private final boolean truncated;
+    private final long elapsedMillis;
+
+    public SearchSummary(final long files, final long bytes, final long matches, final boolean truncated, final long elapsedMillis) {
+        this.files = files;
+        this.bytes = bytes;
+        this.matches = matches;
+        this.truncated = truncated;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return true if the search stopped at the result limit
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return matches + (truncated ? "+" : "") + " matches in " + files + " files (" + ListSummary.formatSize(bytes) + ") in " + elapsedMillis + "ms";
+    }
+}
@@ -0,0 +1,387 @@
+package fr.nkri.shell.cli;
+
+import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.io.StyledText;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+
+/**
+ * Validates every line, or chosen CSV columns, of a large file against compiled patterns.
+ * The file is read in chunks cut at line breaks, chunks are checked in parallel
+ * and their results handed over in file order, from the calling thread.
+ * Only a few chunks are in memory at once, so files of millions of rows work.
+ */
+public class ValidationCLI {
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Validate a file and print every invalid row as line: text [failed rules]
+     * @param path file to validate
+     * @param options patterns, delimiter and header
+     * @return totals of the validation or null if error
+     */
+    public static ValidationSummary validate(final String path, final ValidationOptions options) {
+        final ValidationSummary summary = validate(path, options, row -> {
+            final StyledText line = StyledText.local()
+                    .style(MiniColor.GREEN).append(row.getLineNumber()).plain()
+                    .append(": ").append(row.getLine()).append(' ')
+                    .style(MiniColor.RED).append('[');
+            for(int i = 0; i < row.getFailed().size(); i++){
+                line.append(i == 0 ? "" : ", ").append(row.getFailed().get(i).getLabel());
+            }
+            line.append(']').println();
+        });
+
+        if(summary != null){
+            ShellOutput.println(MiniColor.color(summary.toString(), MiniColor.AQUA));
+        }
+
+        ShellOutput.commit();
+        return summary;
+    }
+
+    /**
+     * Validate a file, handing every invalid row to a consumer, in file order and from the calling thread
+     * @param path file to validate
+     * @param options patterns, delimiter and header
+     * @param consumer receives the invalid rows
+     * @return totals of the validation or null if error
+     */
+    public static ValidationSummary validate(final String path, final ValidationOptions options, final Consumer<InvalidRow> consumer) {
+        final Path file = Paths.get(path);
+        if(!Files.isRegularFile(file)){
+            MiniCLI.error("File not found!");
+            return null;
+        }
+        if(options.getRules().isEmpty()){
+            MiniCLI.error("No pattern to validate!");
+            return null;
+        }
+
+        final long start = System.nanoTime();
+        try (InputStream in = Files.newInputStream(file)) {
+            return new Validation(options, consumer).run(in, start);
+        }
+        catch (final IllegalArgumentException e) {
+            MiniCLI.error(e.getMessage());
+            return null;
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error reading file");
+            return null;
+        }
+    }
+
+    /*
+    Split a CSV row, quoted columns may hold the delimiter and "" for a quote
+     */
+    static List<String> split(final String line, final char delimiter, final List<String> columns) {
+        columns.clear();
+        final StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+
+        for(int i = 0; i < line.length(); i++){
+            final char c = line.charAt(i);
+            if(quoted){
+                if(c != '"'){
+                    column.append(c);
+                }
+                else if(i + 1 < line.length() && line.charAt(i + 1) == '"'){
+                    column.append('"');
+                    i++;
+                }
+                else {
+                    quoted = false;
+                }
+            }
+            else if(c == '"'){
+                quoted = true;
+            }
+            else if(c == delimiter){
+                columns.add(column.toString());
+                column.setLength(0);
+            }
+            else {
+                column.append(c);
+            }
+        }
+
+        columns.add(column.toString());
+        return columns;
+    }
+
+    /*
+    Reads the chunks, keeps a bounded window of them in flight and delivers their results in order
+     */
+    private static final class Validation {
+
+        private final ValidationOptions options;
+        private final Consumer<InvalidRow> consumer;
+        private final int maxInFlight;
+
+        private List<ValidationRule> rules;
+        private long[] failedByRule;
+        private long rows;
+        private long invalid;
+        private long reported;
+        private long bytes;
+
+        /*
+        Line number of the first line of the next chunk to deliver, minus one
+         */
+        private long lines;
+
+        private Validation(final ValidationOptions options, final Consumer<InvalidRow> consumer) {
+            this.options = options;
+            this.consumer = consumer;
+            this.maxInFlight = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+        }
+
+        private ValidationSummary run(final InputStream in, final long start) throws IOException {
+            final Deque<CompletableFuture<Chunk>> inFlight = new ArrayDeque<>();
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int filled = 0;
+            boolean headerRead = !this.options.isHeader();
+            if(headerRead){
+                resolve(null);
+            }
+
+            while(true){
+                final int read = in.read(buffer, filled, buffer.length - filled);
+                if(read > 0){
+                    filled += read;
+                    this.bytes += read;
+                    if(filled < buffer.length){
+                        continue;
+                    }
+                }
+
+                final boolean end = read < 0;
+                int cut = end ? filled : lastLineBreak(buffer, filled) + 1;
+                if(!headerRead){
+                    /*
+                    Header : first line, read here to know the column indexes before any chunk is checked
+                     */
+                    final int headerEnd = firstLineBreak(buffer, filled);
+                    if(headerEnd < 0 && !end){
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                        continue;
+                    }
+
+                    final int headerLength = headerEnd < 0 ? filled : headerEnd + 1;
+                    resolve(decode(buffer, 0, headerLength));
+                    System.arraycopy(buffer, headerLength, buffer, 0, filled - headerLength);
+                    filled -= headerLength;
+                    cut = end ? filled : lastLineBreak(buffer, filled) + 1;
+                    this.lines = 1;
+                    headerRead = true;
+                }
+
+                if(cut == 0 && !end){
+                    /*
+                    A line longer than the buffer
+                     */
+                    if(filled == buffer.length){
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    continue;
+                }
+
+                if(cut > 0){
+                    final byte[] data = Arrays.copyOf(buffer, cut);
+                    inFlight.add(CompletableFuture.supplyAsync(() -> check(data), ForkJoinPool.commonPool()));
+                    System.arraycopy(buffer, cut, buffer, 0, filled - cut);
+                    filled -= cut;
+
+                    while(inFlight.size() >= this.maxInFlight){
+                        deliver(inFlight.removeFirst().join());
+                    }
+                }
+
+                if(end){
+                    break;
+                }
+            }
+
+            while(!inFlight.isEmpty()){
+                deliver(inFlight.removeFirst().join());
+            }
+
+            return new ValidationSummary(this.rows, this.invalid, this.rules, this.failedByRule, this.bytes,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        /*
+        Find the columns named in the header
+         */
+        private void resolve(final String header) {
+            final List<String> names = header == null ? List.of() : split(header, this.options.getDelimiter(), new ArrayList<>());
+            this.rules = new ArrayList<>();
+            for(ValidationRule rule : this.options.getRules()){
+                if(rule.getColumnName() == null){
+                    this.rules.add(rule);
+                    continue;
+                }
+
+                final int index = names.indexOf(rule.getColumnName());
+                if(index < 0){
+                    throw new IllegalArgumentException("Unknown column: " + rule.getColumnName());
+                }
+                this.rules.add(rule.resolve(index));
+            }
+            this.failedByRule = new long[this.rules.size()];
+        }
+
+        /*
+        Runs on a pool thread, the matchers are reused for every row of the chunk
+         */
+        private Chunk check(final byte[] data) {
+            final Chunk chunk = new Chunk(this.rules.size());
+            final Matcher[] matchers = new Matcher[this.rules.size()];
+            boolean hasColumns = false;
+            for(int i = 0; i < matchers.length; i++){
+                matchers[i] = this.rules.get(i).getPattern().matcher("");
+                hasColumns |= this.rules.get(i).getColumn() >= 0;
+            }
+
+            final List<String> columns = new ArrayList<>();
+            int lineStart = 0;
+            while(lineStart < data.length){
+                int lineEnd = lineStart;
+                while(lineEnd < data.length && data[lineEnd] != '\n'){
+                    lineEnd++;
+                }
+                final int next = lineEnd + 1;
+                if(lineEnd > lineStart && data[lineEnd - 1] == '\r'){
+                    lineEnd--;
+                }
+
+                chunk.lines++;
+                if(lineEnd == lineStart && this.options.isSkipEmptyLines()){
+                    lineStart = next;
+                    continue;
+                }
+
+                final String line = decode(data, lineStart, lineEnd - lineStart);
+                if(hasColumns){
+                    split(line, this.options.getDelimiter(), columns);
+                }
+
+                long failed = 0;
+                for(int i = 0; i < matchers.length; i++){
+                    final int column = this.rules.get(i).getColumn();
+                    final String value = column < 0 ? line : column < columns.size() ? columns.get(column) : null;
+                    if(value == null || !matchers[i].reset(value).matches()){
+                        failed |= 1L << i;
+                        chunk.failedByRule[i]++;
+                    }
+                }
+
+                chunk.rows++;
+                if(failed != 0){
+                    chunk.invalid(chunk.lines, line, failed);
+                }
+                lineStart = next;
+            }
+            return chunk;
+        }
+
+        /*
+        On the calling thread, in file order
+         */
+        private void deliver(final Chunk chunk) {
+            this.rows += chunk.rows;
+            this.invalid += chunk.invalidCount;
+            for(int i = 0; i < this.failedByRule.length; i++){
+                this.failedByRule[i] += chunk.failedByRule[i];
+            }
+
+            for(int i = 0; i < chunk.invalidCount && this.reported < this.options.getMaxReported(); i++, this.reported++){
+                final List<ValidationRule> failed = new ArrayList<>(Long.bitCount(chunk.masks[i]));
+                for(int rule = 0; rule < this.rules.size(); rule++){
+                    if((chunk.masks[i] & 1L << rule) != 0){
+                        failed.add(this.rules.get(rule));
+                    }
+                }
+                this.consumer.accept(new InvalidRow(this.lines + chunk.lineNumbers[i], chunk.texts.get(i), failed));
+            }
+            this.lines += chunk.lines;
+        }
+
+        private static int lastLineBreak(final byte[] buffer, final int length) {
+            for(int i = length - 1; i >= 0; i--){
+                if(buffer[i] == '\n'){
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int firstLineBreak(final byte[] buffer, final int length) {
+            for(int i = 0; i < length; i++){
+                if(buffer[i] == '\n'){
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String decode(final byte[] data, final int offset, final int length) {
+            int end = offset + length;
+            while(end > offset && (data[end - 1] == '\n' || data[end - 1] == '\r')){
+                end--;
+            }
+            return new String(data, offset, end - offset, StandardCharsets.UTF_8);
+        }
+    }
+
+    /*
+    Results of one chunk, line numbers relative to its first line
+     */
+    private static final class Chunk {
+
+        private final long[] failedByRule;
+        private long lines;
+        private long rows;
+
+        private int invalidCount;
+        private long[] lineNumbers;
+        private long[] masks;
+        private final List<String> texts;
+
+        private Chunk(final int rules) {
+            this.failedByRule = new long[rules];
+            this.lineNumbers = new long[16];
+            this.masks = new long[16];
+            this.texts = new ArrayList<>();
+        }
+
+        private void invalid(final long lineNumber, final String line, final long mask) {
+            if(this.invalidCount == this.masks.length){
+                this.lineNumbers = Arrays.copyOf(this.lineNumbers, this.invalidCount * 2);
+                this.masks = Arrays.copyOf(this.masks, this.invalidCount * 2);
+            }
+            this.lineNumbers[this.invalidCount] = lineNumber;
+            this.masks[this.invalidCount] = mask;
+            this.texts.add(line);
+            this.invalidCount++;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package fr.nkri.shell.cli;
+
+import fr.nkri.shell.enums.InputPattern;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Options of ValidationCLI.validate : the patterns to check and how rows are split
+ */
+public class ValidationOptions {
+
+    /*
+    Rows keep a 64 bits mask of their failed rules
+     */
+    static final int MAX_RULES = 64;
+
+    private final List<ValidationRule> rules = new ArrayList<>();
+    private char delimiter = ',';
+    private boolean header;
+    private boolean skipEmptyLines = true;
+    private long maxReported = Long.MAX_VALUE;
+
+    /**
+     * Check each whole line
+     * @param pattern pattern the line must match
+     * @return these options
+     */
+    public ValidationOptions line(final InputPattern pattern) {
+        return line(pattern.getPattern());
+    }
+
+    public ValidationOptions line(final Pattern pattern) {
+        return add(new ValidationRule("line", -1, null, pattern));
+    }
+
+    /**
+     * Check a column of each row
+     * @param index column index, starting at 0
+     * @param pattern pattern the column must match
+     * @return these options
+     */
+    public ValidationOptions column(final int index, final InputPattern pattern) {
+        return column(index, pattern.getPattern());
+    }
+
+    public ValidationOptions column(final int index, final Pattern pattern) {
+        if(index < 0){
+            throw new IllegalArgumentException("Column index must be positive!");
+        }
+        return add(new ValidationRule("column " + (index + 1), index, null, pattern));
+    }
+
+    /**
+     * Check a column of each row, found by its name in the header line
+     * @param name column name
+     * @param pattern pattern the column must match
+     * @return these options
+     */
+    public ValidationOptions column(final String name, final InputPattern pattern) {
+        return column(name, pattern.getPattern());
+    }
+
+    public ValidationOptions column(final String name, final Pattern pattern) {
+        this.header = true;
+        return add(new ValidationRule(name, -1, name, pattern));
+    }
+
+    private ValidationOptions add(final ValidationRule rule) {
+        if(this.rules.size() == MAX_RULES){
+            throw new IllegalArgumentException("At most " + MAX_RULES + " patterns!");
+        }
+        this.rules.add(rule);
+        return this;
+    }
+
+    /**
+     * @param delimiter column delimiter, ',' by default, quoted columns may hold it
+     * @return these options
+     */
+    public ValidationOptions delimiter(final char delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * @param header true if the first line holds the column names, it is not validated
+     * @return these options
+     */
+    public ValidationOptions header(final boolean header) {
+        this.header = header;
+        return this;
+    }
+
+    /**
+     * @param skipEmptyLines false to validate empty lines as rows, true by default
+     * @return these options
+     */
+    public ValidationOptions skipEmptyLines(final boolean skipEmptyLines) {
+        this.skipEmptyLines = skipEmptyLines;
+        return this;
+    }
+
+    /**
+     * Hand at most this many invalid rows over, the following ones are only counted
+     * @param maxReported max number of invalid rows reported
+     * @return these options
+     */
+    public ValidationOptions maxReported(final long maxReported) {
+        this.maxReported = maxReported;
+        return this;
+    }
+
+    public List<ValidationRule> getRules() {
+        return rules;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    public boolean isSkipEmptyLines() {
+        return skipEmptyLines;
+    }
+
+    public long getMaxReported() {
+        return maxReported;
+    }
+}
@@ -0,0 +1,53 @@
+package fr.nkri.shell.cli;
+
+import java.util.regex.Pattern;
+
+/**
+ * One pattern checked by ValidationCLI.validate, on a whole line or on a column
+ */
+public class ValidationRule {
+
+    private final String label;
+    private final int column;
+    private final String columnName;
+    private final Pattern pattern;
+
+    ValidationRule(final String label, final int column, final String columnName, final Pattern pattern) {
+        this.label = label;
+        this.column = column;
+        this.columnName = columnName;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Same rule on a column found in the header
+     */
+    ValidationRule resolve(final int column) {
+        return new ValidationRule(this.label, column, null, this.pattern);
+    }
+
+    /**
+     * @return "line", the column name or "column n"
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return column index, -1 for the whole line
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return column name to find in the header, null if the index is known
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+}
@@ -0,0 +1,84 @@
+package fr.nkri.shell.cli;
+
+import java.util.List;
+
+/**
+ * Totals of a ValidationCLI.validate
+ */
+public class ValidationSummary {
+
+    private final long rows;
+    private final long invalid;
+    private final List<ValidationRule> rules;
+    private final long[] failedByRule;
+    private final long bytes;
+    private final long elapsedMillis;
+
+    public ValidationSummary(final long rows, final long invalid, final List<ValidationRule> rules,
+                             final long[] failedByRule, final long bytes, final long elapsedMillis) {
+        this.rows = rows;
+        this.invalid = invalid;
+        this.rules = rules;
+        this.failedByRule = failedByRule;
+        this.bytes = bytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return validated rows, the header and skipped empty lines excluded
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return rows failing at least one rule
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public long getValid() {
+        return rows - invalid;
+    }
+
+    public List<ValidationRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * @param rule index of the rule, in the order it was added to the options
+     * @return rows failing this rule
+     */
+    public long getFailed(final int rule) {
+        return failedByRule[rule];
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return validated rows per second
+     */
+    public double getThroughput() {
+        return elapsedMillis == 0 ? rows * 1000.0 : rows * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder details = new StringBuilder();
+        for(int i = 0; i < this.rules.size(); i++){
+            details.append(i == 0 ? " (" : ", ").append(this.rules.get(i).getLabel()).append('=').append(this.failedByRule[i]);
+        }
+        if(details.length() > 0){
+            details.append(')');
+        }
+        return rows + " rows, " + invalid + " invalid" + details + " in " + elapsedMillis + "ms ("
+                + ListSummary.formatSize(bytes) + ", " + String.format("%.0f", getThroughput()) + " rows/s)";
+    }
+}
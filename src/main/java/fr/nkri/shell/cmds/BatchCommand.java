@@ -0,0 +1,106 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.APICLI;
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.http.BatchOptions;
+import fr.nkri.shell.http.BatchResult;
+import fr.nkri.shell.http.BatchSummary;
+import fr.nkri.shell.io.OutputSink;
+import fr.nkri.shell.io.ShellOutput;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class BatchCommand implements ShellCommand {
+
+    @Override
+    public String getName() {
+        return "batch";
+    }
+
+    @Override
+    public String getDescription() {
+        return "GET every URL of a file, or POST every line of a file: -c concurrency, -o input order, -q failures only";
+    }
+
+    @Override
+    public String getUsage() {
+        return "batch [-c concurrency] [-o] [-q] get <file> | post <url> <file>";
+    }
+
+    @Override
+    public void action(String[] args) {
+        final BatchOptions options = new BatchOptions();
+        boolean quiet = false;
+        int i = 0;
+
+        try {
+            for(; i < args.length && args[i].startsWith("-"); i++){
+                switch(args[i]){
+                    case "-c":
+                        options.concurrency(Integer.parseInt(args[++i]));
+                        break;
+
+                    case "-o":
+                        options.ordered(true);
+                        break;
+
+                    case "-q":
+                        quiet = true;
+                        break;
+
+                    default:
+                        throw new IllegalArgumentException(args[i]);
+                }
+            }
+        }
+        catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        final boolean post = i < args.length && args[i].equalsIgnoreCase("post");
+        final boolean get = i < args.length && args[i].equalsIgnoreCase("get");
+        if(!(get && args.length == i + 2) && !(post && args.length == i + 3)){
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        /*
+        Results arrive on the HTTP client threads : print to the sink of this command
+         */
+        final OutputSink out = ShellOutput.sink();
+        final boolean failuresOnly = quiet;
+        final Consumer<BatchResult> printer = result -> {
+            if(failuresOnly && result.isSuccess()){
+                return;
+            }
+
+            final String status = result.getError() != null ? "ERR" : String.valueOf(result.getStatusCode());
+            out.println(MiniColor.color(status, result.isSuccess() ? MiniColor.GREEN : MiniColor.RED)
+                    + String.format(" %6dms ", TimeUnit.NANOSECONDS.toMillis(result.getLatencyNanos())) + result.getInput()
+                    + (result.getError() != null ? "  " + result.getError() : ""));
+        };
+
+        try (Stream<String> lines = Files.lines(Paths.get(args[args.length - 1]))) {
+            final Iterator<String> inputs = lines.filter(line -> !line.isBlank()).iterator();
+            final BatchSummary summary = post
+                    ? APICLI.batchPost(args[i + 1], inputs, null, null, options, printer)
+                    : APICLI.batchGet(inputs, null, null, options, printer);
+
+            if(summary != null){
+                out.println(MiniColor.color(summary.toString(), MiniColor.AQUA));
+            }
+        }
+        catch (final IOException | UncheckedIOException e) {
+            MiniCLI.error("Error reading file");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.FileCLI;
+import fr.nkri.shell.io.LineSink;
+import fr.nkri.shell.io.LineSource;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+public class CatCommand implements StreamingShellCommand {
+
+    @Override
+    public String getName() {
+        return "cat";
+    }
+
+    @Override
+    public String getDescription() {
+        return "print files line by line, or pass the piped lines through";
+    }
+
+    @Override
+    public String getUsage() {
+        return "cat [file...]";
+    }
+
+    @Override
+    public void pipe(final String[] args, final LineSource input, final LineSink output) throws InterruptedException {
+        if(args.length == 0){
+            String line;
+            while((line = input.next()) != null){
+                output.write(line);
+            }
+            return;
+        }
+
+        for(String path : args){
+            try (Stream<String> lines = FileCLI.lines(path)) {
+                if(lines == null){
+                    continue;
+                }
+
+                final Iterator<String> iterator = lines.iterator();
+                while(iterator.hasNext()){
+                    if(Thread.interrupted()){
+                        throw new InterruptedException();
+                    }
+                    output.write(iterator.next());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package fr.nkri.shell.cmds;
+
+import java.util.*;
+
+/**
+ * Dispatch index of the shell commands.
+ * Names and aliases are case-folded once at registration, so a lookup
+ * is a single hash access whatever the number of registered commands.
+ * A sorted view of the same keys resolves unique prefixes (hel -> help).
+ * Changes copy the index, so lookups are safe from any thread without locking.
+ */
+public class CommandRegistry {
+
+    /*
+    Current index, replaced as a whole on every change so lookups from many sessions need no lock
+     */
+    private volatile Snapshot snapshot;
+
+    public CommandRegistry() {
+        this.snapshot = new Snapshot(new HashMap<>(), new TreeMap<>(), new LinkedHashSet<>());
+    }
+
+    /**
+     * Index a command under its name and all its aliases.
+     * A key already taken by another command is replaced.
+     * @param command command to index
+     */
+    public synchronized void register(final ShellCommand command){
+        if(this.snapshot.commands.contains(command)){
+            return;
+        }
+
+        final Snapshot next = this.snapshot.copy();
+        next.commands.add(command);
+        next.indexKey(command.getName(), command);
+        for(String alias : command.getAliases()){
+            next.indexKey(alias, command);
+        }
+        this.snapshot = next;
+    }
+
+    /**
+     * Remove a command and all the keys pointing to it.
+     * A key it had taken over goes back to the command registered before it.
+     * @param command command to remove
+     * @return true if the command was registered
+     */
+    public synchronized boolean unregister(final ShellCommand command){
+        if(!this.snapshot.commands.contains(command)){
+            return false;
+        }
+
+        /*
+        Rebuild in registration order, so the last command registered still owns a shared key
+         */
+        final Snapshot next = new Snapshot(new HashMap<>(), new TreeMap<>(), new LinkedHashSet<>());
+        for(ShellCommand remaining : this.snapshot.commands){
+            if(remaining == command){
+                continue;
+            }
+            next.commands.add(remaining);
+            next.indexKey(remaining.getName(), remaining);
+            for(String alias : remaining.getAliases()){
+                next.indexKey(alias, remaining);
+            }
+        }
+        this.snapshot = next;
+        return true;
+    }
+
+    /**
+     * Find a command by exact name or alias, ignoring case
+     * @param name typed name
+     * @return command or null if not found
+     */
+    public ShellCommand get(final String name){
+        return this.snapshot.index.get(fold(name));
+    }
+
+    /**
+     * Find a command by exact name, alias, or unique prefix.
+     * A prefix shared by several distinct commands resolves to nothing.
+     * @param name typed name
+     * @return command or null if not found or ambiguous
+     */
+    public ShellCommand resolve(final String name){
+        final Snapshot current = this.snapshot;
+        final String key = fold(name);
+        final ShellCommand exact = current.index.get(key);
+        if(exact != null || key.isEmpty()){
+            return exact;
+        }
+
+        ShellCommand found = null;
+        for(ShellCommand candidate : current.prefixed(key).values()){
+            if(found != null && found != candidate){
+                return null;
+            }
+            found = candidate;
+        }
+
+        return found;
+    }
+
+    /**
+     * All names and aliases starting with the given prefix
+     * @param prefix typed prefix
+     * @return sorted matching keys
+     */
+    public Set<String> keysStartingWith(final String prefix){
+        return Collections.unmodifiableSet(this.snapshot.prefixed(fold(prefix)).keySet());
+    }
+
+    /**
+     * @return registered commands in registration order
+     */
+    public Collection<ShellCommand> getCommands(){
+        return Collections.unmodifiableSet(this.snapshot.commands);
+    }
+
+    public int size(){
+        return this.snapshot.commands.size();
+    }
+
+    private static String fold(final String name){
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /*
+    Index maps, never modified once published
+     */
+    private static final class Snapshot {
+
+        /*
+        Case-folded name or alias -> command
+         */
+        private final Map<String, ShellCommand> index;
+
+        /*
+        Same keys, sorted, for prefix resolution
+         */
+        private final NavigableMap<String, ShellCommand> sortedIndex;
+
+        /*
+        Registration order, used for listing
+         */
+        private final Set<ShellCommand> commands;
+
+        private Snapshot(final Map<String, ShellCommand> index, final NavigableMap<String, ShellCommand> sortedIndex, final Set<ShellCommand> commands) {
+            this.index = index;
+            this.sortedIndex = sortedIndex;
+            this.commands = commands;
+        }
+
+        private Snapshot copy(){
+            return new Snapshot(new HashMap<>(this.index), new TreeMap<>(this.sortedIndex), new LinkedHashSet<>(this.commands));
+        }
+
+        private SortedMap<String, ShellCommand> prefixed(final String key){
+            return this.sortedIndex.subMap(key, key + Character.MAX_VALUE);
+        }
+
+        private void indexKey(final String key, final ShellCommand command){
+            if(key == null || key.isEmpty()){
+                return;
+            }
+
+            final String folded = fold(key);
+            this.index.put(folded, command);
+            this.sortedIndex.put(folded, command);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.APICLI;
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.http.TransferListener;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.utils.ProgressBar;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+
+public class DownloadCommand implements ShellCommand {
+
+    private static final int BAR_LENGTH = 40;
+
+    @Override
+    public String getName() {
+        return "download";
+    }
+
+    @Override
+    public String getDescription() {
+        return "download an URL straight to a file, with a progress bar";
+    }
+
+    @Override
+    public String getUsage() {
+        return "download <url> [file]";
+    }
+
+    @Override
+    public void action(String[] args) {
+        if(args.length < 1 || args.length > 2){
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        final Path target;
+        try {
+            target = args.length == 2 ? Paths.get(args[1]) : Paths.get(fileName(args[0]));
+        }
+        catch (final IllegalArgumentException e) {
+            MiniCLI.error("Invalid URL: " + args[0]);
+            return;
+        }
+
+        /*
+        The bar is drawn as bytes arrive, not at the end of the command
+         */
+        ShellOutput.flush();
+
+        final long start = System.nanoTime();
+        try {
+            final Path file = APICLI.download(args[0], null, null, target, TransferListener.of(new ProgressBar(BAR_LENGTH))).get();
+            if(file != null){
+                final long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+                ShellOutput.println(MiniColor.color("Saved " + file + " (" + Files.size(file) / 1024 + " KB in " + millis + "ms)", MiniColor.GREEN));
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (final ExecutionException | IOException e) {
+            MiniCLI.error("Download error: " + e.getMessage());
+        }
+    }
+
+    /*
+    Last path segment of the URL, index.html for a bare host
+     */
+    private static String fileName(final String url) {
+        final String path = URI.create(url).getPath();
+        final String name = path == null ? "" : path.substring(path.lastIndexOf('/') + 1);
+        return name.isEmpty() ? "index.html" : name;
+    }
+}
@@ -0,0 +1,49 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.APICLI;
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.io.LineSink;
+import fr.nkri.shell.io.LineSource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class FetchCommand implements StreamingShellCommand {
+
+    @Override
+    public String getName() {
+        return "fetch";
+    }
+
+    @Override
+    public String getDescription() {
+        return "print the body of an URL line by line as it downloads";
+    }
+
+    @Override
+    public String getUsage() {
+        return "fetch <url>";
+    }
+
+    @Override
+    public void pipe(final String[] args, final LineSource input, final LineSink output) throws InterruptedException {
+        if(args.length != 1){
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        final CompletableFuture<Long> lines = APICLI.getLines(args[0], null, null, output);
+        try {
+            lines.get();
+        }
+        catch (final InterruptedException e) {
+            lines.cancel(true);
+            throw e;
+        }
+        catch (final ExecutionException e) {
+            /*
+            Already reported by APICLI
+             */
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.jobs.Job;
+
+public class FgCommand extends JobCommand {
+
+    /*
+    How often the output of the job is written out while waiting
+     */
+    private static final long REFRESH_MILLIS = 100;
+
+    @Override
+    public String getName() {
+        return "fg";
+    }
+
+    @Override
+    public String getDescription() {
+        return "wait for a background job and display its output";
+    }
+
+    @Override
+    public String getUsage() {
+        return "fg [job]";
+    }
+
+    @Override
+    public void action(String[] args) {
+        final Job job = findJob(args.length > 0 ? args[0] : null);
+        if(job == null){
+            return;
+        }
+
+        ShellOutput.println(job.getCommandLine());
+        try {
+            while(!job.await(REFRESH_MILLIS)){
+                printOutput(job);
+                ShellOutput.flush();
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        printOutput(job);
+        printStatus(job);
+        jobs().remove(job.getId());
+    }
+}
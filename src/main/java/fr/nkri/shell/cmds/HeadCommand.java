@@ -0,0 +1,43 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.FileCLI;
+import fr.nkri.shell.io.LineSink;
+import fr.nkri.shell.io.LineSource;
+
+import java.util.List;
+
+public class HeadCommand extends LineWindowCommand {
+
+    @Override
+    public String getName() {
+        return "head";
+    }
+
+    @Override
+    public String getDescription() {
+        return "print the first lines of a file or of the piped lines";
+    }
+
+    @Override
+    public String getUsage() {
+        return "head [-n count] [file]";
+    }
+
+    @Override
+    protected void fromFile(final String path, final int count, final boolean follow, final LineSink output) throws InterruptedException {
+        final List<String> lines = FileCLI.head(path, count);
+        if(lines != null){
+            for(String line : lines){
+                output.write(line);
+            }
+        }
+    }
+
+    @Override
+    protected void fromInput(final LineSource input, final int count, final LineSink output) throws InterruptedException {
+        String line;
+        for(int i = 0; i < count && (line = input.next()) != null; i++){
+            output.write(line);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.history.History;
+import fr.nkri.shell.history.HistoryEntry;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.io.StyledText;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public class HistoryCommand extends AbstractShellCommand {
+
+    private static final int DEFAULT_COUNT = 20;
+
+    @Override
+    public String getName() {
+        return "history";
+    }
+
+    @Override
+    public String getDescription() {
+        return "list the last command lines, search them (search) or forget them (clear)";
+    }
+
+    @Override
+    public String getUsage() {
+        return "history [count] | history search [-n max] <text> | history clear";
+    }
+
+    @Override
+    public List<String> complete(final String[] args, final String word) {
+        if(args.length > 0){
+            return List.of();
+        }
+        return Stream.of("clear", "search").filter(option -> option.startsWith(word)).toList();
+    }
+
+    @Override
+    public void action(String[] args) {
+        final History history = this.shell.getHistory();
+
+        if(args.length > 0 && args[0].equalsIgnoreCase("clear")){
+            history.clear();
+            ShellOutput.println(MiniColor.color("History cleared!", MiniColor.GREEN));
+            return;
+        }
+
+        if(args.length > 0 && args[0].equalsIgnoreCase("search")){
+            search(history, args);
+            return;
+        }
+
+        int count = DEFAULT_COUNT;
+        if(args.length > 0){
+            try {
+                count = Integer.parseInt(args[0]);
+            }
+            catch (final NumberFormatException e) {
+                MiniCLI.error("Usage: " + getUsage());
+                return;
+            }
+            if(count < 1){
+                MiniCLI.error("Usage: " + getUsage());
+                return;
+            }
+        }
+
+        for(HistoryEntry entry : history.last(count)){
+            print(entry);
+        }
+    }
+
+    private void search(final History history, final String[] args) {
+        int max = DEFAULT_COUNT;
+        int first = 1;
+        if(args.length > 2 && args[1].equals("-n")){
+            try {
+                max = Integer.parseInt(args[2]);
+            }
+            catch (final NumberFormatException e) {
+                MiniCLI.error("Usage: " + getUsage());
+                return;
+            }
+            if(max < 1){
+                MiniCLI.error("Usage: " + getUsage());
+                return;
+            }
+            first = 3;
+        }
+        if(first >= args.length){
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        final String text = String.join(" ", List.of(args).subList(first, args.length));
+        final List<HistoryEntry> entries = history.search(text, max);
+        if(entries.isEmpty()){
+            ShellOutput.println("No match.");
+            return;
+        }
+
+        /*
+        Matches come newest first, printed in history order
+         */
+        for(int i = entries.size() - 1; i >= 0; i--){
+            print(entries.get(i));
+        }
+    }
+
+    private void print(final HistoryEntry entry) {
+        StyledText.local()
+                .style(MiniColor.AQUA).append(String.format("%6d", entry.getNumber())).plain()
+                .append("  ").append(entry.getLine())
+                .println();
+    }
+}
@@ -0,0 +1,69 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.enums.JobState;
+import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.jobs.Job;
+import fr.nkri.shell.jobs.JobManager;
+
+/**
+ * Base of the built-in commands working on the jobs table
+ */
+abstract class JobCommand extends AbstractShellCommand {
+
+    protected JobManager jobs(){
+        return this.shell.getJobManager();
+    }
+
+    /**
+     * Find the job designated by an argument, %1 and 1 are both accepted
+     * @param arg job number, null for the most recent job
+     * @return job or null, with an error printed, if not found
+     */
+    protected Job findJob(final String arg){
+        if(arg == null){
+            final Job last = jobs().last();
+            if(last == null){
+                MiniCLI.error("No current job!");
+            }
+            return last;
+        }
+
+        try {
+            final Job job = jobs().get(Integer.parseInt(arg.startsWith("%") ? arg.substring(1) : arg));
+            if(job == null){
+                MiniCLI.error("No such job: " + arg);
+            }
+            return job;
+        }
+        catch (final NumberFormatException e) {
+            MiniCLI.error("Invalid job id: " + arg);
+            return null;
+        }
+    }
+
+    /**
+     * Print the output captured since the last call
+     * @param job job to print
+     */
+    protected static void printOutput(final Job job){
+        final String output = job.drainOutput();
+        if(!output.isEmpty()){
+            ShellOutput.print(output);
+        }
+    }
+
+    /**
+     * Print a one line summary of a job
+     * @param job job to print
+     */
+    protected static void printStatus(final Job job){
+        final JobState state = job.getState();
+        final MiniColor color = state == JobState.RUNNING ? MiniColor.AQUA
+                : state == JobState.DONE ? MiniColor.GREEN : MiniColor.RED;
+
+        ShellOutput.println("[" + job.getId() + "] " + MiniColor.color(String.format("%-8s", state.getLabel()), color)
+                + " " + job.getElapsedMillis() + "ms  " + job.getCommandLine());
+    }
+}
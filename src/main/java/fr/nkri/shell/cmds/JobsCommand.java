@@ -0,0 +1,34 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.jobs.Job;
+
+public class JobsCommand extends JobCommand {
+
+    @Override
+    public String getName() {
+        return "jobs";
+    }
+
+    @Override
+    public String getDescription() {
+        return "list the background jobs";
+    }
+
+    @Override
+    public String getUsage() {
+        return "jobs";
+    }
+
+    @Override
+    public void action(String[] args) {
+        if(jobs().size() == 0){
+            ShellOutput.println("No jobs.");
+            return;
+        }
+
+        for(Job job : jobs().list()){
+            printStatus(job);
+        }
+    }
+}
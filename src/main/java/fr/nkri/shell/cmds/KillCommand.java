@@ -0,0 +1,38 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.jobs.Job;
+
+public class KillCommand extends JobCommand {
+
+    @Override
+    public String getName() {
+        return "kill";
+    }
+
+    @Override
+    public String getDescription() {
+        return "cancel background jobs and remove them from the jobs table";
+    }
+
+    @Override
+    public String getUsage() {
+        return "kill <job...>";
+    }
+
+    @Override
+    public void action(String[] args) {
+        if(args.length == 0){
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        for(String arg : args){
+            final Job job = findJob(arg);
+            if(job != null){
+                jobs().remove(job.getId());
+                printStatus(job);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.io.LineSink;
+import fr.nkri.shell.io.LineSource;
+
+/**
+ * Base of head and tail : [-n count] [-f] [file], reading the piped lines without file
+ */
+abstract class LineWindowCommand implements StreamingShellCommand {
+
+    private static final int DEFAULT_COUNT = 10;
+
+    @Override
+    public void pipe(final String[] args, final LineSource input, final LineSink output) throws InterruptedException {
+        int count = DEFAULT_COUNT;
+        boolean follow = false;
+        String path = null;
+
+        for(int i = 0; i < args.length; i++){
+            try {
+                if(args[i].equals("-n") && i + 1 < args.length){
+                    count = Integer.parseInt(args[++i]);
+                }
+                else if(args[i].equals("-f") && supportsFollow()){
+                    follow = true;
+                }
+                else if(args[i].startsWith("-") && args[i].length() > 1){
+                    count = Integer.parseInt(args[i].substring(1));
+                }
+                else {
+                    path = args[i];
+                }
+            }
+            catch (final NumberFormatException e) {
+                MiniCLI.error("Invalid line count: " + args[i]);
+                return;
+            }
+        }
+
+        if(count < 0){
+            MiniCLI.error("Invalid line count: " + count);
+            return;
+        }
+
+        if(path != null){
+            fromFile(path, count, follow, output);
+        }
+        else {
+            fromInput(input, count, output);
+        }
+    }
+
+    /*
+    True if -f keeps reading the lines appended to the file
+     */
+    protected boolean supportsFollow() {
+        return false;
+    }
+
+    protected abstract void fromFile(final String path, final int count, final boolean follow, final LineSink output) throws InterruptedException;
+
+    protected abstract void fromInput(final LineSource input, final int count, final LineSink output) throws InterruptedException;
+}
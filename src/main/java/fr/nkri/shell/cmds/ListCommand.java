@@ -0,0 +1,71 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.FileCLI;
+import fr.nkri.shell.cli.ListOptions;
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.enums.FileSort;
+
+import java.util.Locale;
+
+public class ListCommand implements ShellCommand {
+
+    @Override
+    public String getName() {
+        return "ls";
+    }
+
+    @Override
+    public String getDescription() {
+        return "list a folder: -r recursive, -d depth, -p parallel, -s name|size|modified, -n limit, -t totals";
+    }
+
+    @Override
+    public String getUsage() {
+        return "ls [-r] [-d depth] [-p] [-s sort] [-n limit] [-t] [path]";
+    }
+
+    @Override
+    public void action(String[] args) {
+        final ListOptions options = new ListOptions();
+        String path = ".";
+
+        try {
+            for(int i = 0; i < args.length; i++){
+                switch(args[i]){
+                    case "-r":
+                        options.recursive();
+                        break;
+
+                    case "-d":
+                        options.maxDepth(Integer.parseInt(args[++i]));
+                        break;
+
+                    case "-p":
+                        options.parallel(true);
+                        break;
+
+                    case "-s":
+                        options.sort(FileSort.valueOf(args[++i].toUpperCase(Locale.ROOT)));
+                        break;
+
+                    case "-n":
+                        options.limit(Long.parseLong(args[++i]));
+                        break;
+
+                    case "-t":
+                        options.summary(true);
+                        break;
+
+                    default:
+                        path = args[i];
+                }
+            }
+        }
+        catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        FileCLI.listFiles(path, options);
+    }
+}
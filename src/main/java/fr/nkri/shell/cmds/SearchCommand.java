@@ -0,0 +1,75 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.cli.SearchCLI;
+import fr.nkri.shell.cli.SearchOptions;
+
+public class SearchCommand implements ShellCommand {
+
+    @Override
+    public String getName() {
+        return "search";
+    }
+
+    @Override
+    public String getDescription() {
+        return "search text in files: -e regex, -i ignore case, -n max results, -d depth, -b binary files";
+    }
+
+    @Override
+    public String getUsage() {
+        return "search [-e] [-i] [-n max] [-d depth] [-b] <pattern> [path]";
+    }
+
+    @Override
+    public void action(String[] args) {
+        final SearchOptions options = new SearchOptions();
+        String pattern = null;
+        String path = ".";
+
+        try {
+            for(int i = 0; i < args.length; i++){
+                switch(args[i]){
+                    case "-e":
+                        options.regex(true);
+                        break;
+
+                    case "-i":
+                        options.ignoreCase(true);
+                        break;
+
+                    case "-n":
+                        options.maxResults(Long.parseLong(args[++i]));
+                        break;
+
+                    case "-d":
+                        options.maxDepth(Integer.parseInt(args[++i]));
+                        break;
+
+                    case "-b":
+                        options.binaryFiles(true);
+                        break;
+
+                    default:
+                        if(pattern == null){
+                            pattern = args[i];
+                        }
+                        else {
+                            path = args[i];
+                        }
+                }
+            }
+        }
+        catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        if(pattern == null){
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        SearchCLI.search(pattern, path, options);
+    }
+}
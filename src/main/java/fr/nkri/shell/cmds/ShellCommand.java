@@ -2,6 +2,8 @@ package fr.nkri.shell.cmds;
 
 import fr.nkri.shell.MiniShell;
 
+import java.util.List;
+
 public interface ShellCommand {
 
     /*
@@ -19,11 +21,26 @@ public interface ShellCommand {
      */
     String getUsage();
 
+    /*
+    Other names resolving to this command
+     */
+    default String[] getAliases() {
+        return new String[0];
+    }
+
     /*
     Command action execute with past arguments
      */
     void action(final String[] args);
 
+    /*
+    Candidates for the argument being typed (word), after the given args.
+    Null completes file paths, an empty list completes nothing
+     */
+    default List<String> complete(final String[] args, final String word) {
+        return null;
+    }
+
     /*
     Injection automatic
      */
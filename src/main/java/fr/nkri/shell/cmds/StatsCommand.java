@@ -0,0 +1,75 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.metrics.CommandStats;
+import fr.nkri.shell.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class StatsCommand extends AbstractShellCommand {
+
+    @Override
+    public String getName() {
+        return "stats";
+    }
+
+    @Override
+    public String getDescription() {
+        return "display calls, errors and latencies of every command (reset to clear, csv to export)";
+    }
+
+    @Override
+    public String getUsage() {
+        return "stats [reset|csv]";
+    }
+
+    @Override
+    public List<String> complete(final String[] args, final String word) {
+        if(args.length > 0){
+            return List.of();
+        }
+        return Stream.of("csv", "reset").filter(option -> option.startsWith(word)).toList();
+    }
+
+    @Override
+    public void action(String[] args) {
+        final MetricsRegistry metrics = this.shell.getMetrics();
+
+        if(args.length > 0 && args[0].equalsIgnoreCase("reset")){
+            metrics.reset();
+            ShellOutput.println(MiniColor.color("Stats cleared!", MiniColor.GREEN));
+            return;
+        }
+
+        if(args.length > 0 && args[0].equalsIgnoreCase("csv")){
+            try {
+                final StringBuilder csv = new StringBuilder();
+                metrics.exportCsv(csv);
+                ShellOutput.print(csv);
+            }
+            catch (final IOException e) {
+                MiniCLI.error("Error exporting stats");
+            }
+            return;
+        }
+
+        final List<CommandStats> snapshot = metrics.snapshot();
+        if(snapshot.isEmpty()){
+            ShellOutput.println("No command executed yet.");
+            return;
+        }
+
+        ShellOutput.println(MiniColor.color(String.format("%-20s %10s %8s %12s %12s %12s",
+                "COMMAND", "CALLS", "ERRORS", "P50 (ms)", "P99 (ms)", "MAX (ms)"), MiniColor.BOLD));
+        for(CommandStats stats : snapshot){
+            ShellOutput.println(String.format("%-20s %10d %8d %12.3f %12.3f %12.3f",
+                    stats.getCommand(), stats.getInvocations(), stats.getErrors(),
+                    CommandStats.millis(stats.getP50Nanos()), CommandStats.millis(stats.getP99Nanos()),
+                    CommandStats.millis(stats.getMaxNanos())));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.io.BrokenPipeException;
+import fr.nkri.shell.io.LineSink;
+import fr.nkri.shell.io.LineSource;
+import fr.nkri.shell.io.OutputSink;
+import fr.nkri.shell.io.ShellOutput;
+
+/**
+ * Command able to take part in a pipeline (cmd1 | cmd2 | cmd3).
+ * It reads the lines of the previous stage and writes lines to the next one,
+ * each stage running on its own thread with backpressure between them.
+ */
+public interface StreamingShellCommand extends ShellCommand {
+
+    /*
+    Command body : consume input lines, produce output lines
+     */
+    void pipe(final String[] args, final LineSource input, final LineSink output) throws InterruptedException;
+
+    /*
+    Run alone : no input, lines printed to the shell output
+     */
+    @Override
+    default void action(final String[] args) {
+        final OutputSink sink = ShellOutput.sink();
+        try {
+            pipe(args, LineSource.EMPTY, sink::println);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (final BrokenPipeException e) {
+            /*
+            Nobody reads the output anymore
+             */
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.FileCLI;
+import fr.nkri.shell.io.LineSink;
+import fr.nkri.shell.io.LineSource;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+public class TailCommand extends LineWindowCommand {
+
+    @Override
+    public String getName() {
+        return "tail";
+    }
+
+    @Override
+    public String getDescription() {
+        return "print the last lines of a file, seeking from its end, or of the piped lines; -f keeps printing appended lines";
+    }
+
+    @Override
+    public String getUsage() {
+        return "tail [-n count] [-f] [file]";
+    }
+
+    @Override
+    protected boolean supportsFollow() {
+        return true;
+    }
+
+    @Override
+    protected void fromFile(final String path, final int count, final boolean follow, final LineSink output) throws InterruptedException {
+        if(follow){
+            FileCLI.follow(path, count, output);
+            return;
+        }
+
+        final List<String> lines = FileCLI.tail(path, count);
+        if(lines != null){
+            for(String line : lines){
+                output.write(line);
+            }
+        }
+    }
+
+    @Override
+    protected void fromInput(final LineSource input, final int count, final LineSink output) throws InterruptedException {
+        if(count <= 0){
+            return;
+        }
+
+        final ArrayDeque<String> last = new ArrayDeque<>(count);
+        String line;
+        while((line = input.next()) != null){
+            if(last.size() == count){
+                last.removeFirst();
+            }
+            last.addLast(line);
+        }
+
+        for(String kept : last){
+            output.write(kept);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.cli.ValidationCLI;
+import fr.nkri.shell.cli.ValidationOptions;
+import fr.nkri.shell.enums.InputPattern;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+public class ValidateCommand implements ShellCommand {
+
+    /*
+    Column of a rule : its number or a plain header name, anything else before '=' belongs to the regex
+     */
+    private static final Pattern COLUMN = Pattern.compile("\\d+|[A-Za-z_][A-Za-z0-9_]*");
+
+    @Override
+    public String getName() {
+        return "validate";
+    }
+
+    @Override
+    public String getDescription() {
+        return "validate lines or CSV columns of a file: -d delimiter, -H header line, -n max invalid rows shown";
+    }
+
+    @Override
+    public String getUsage() {
+        return "validate [-d delimiter] [-H] [-n max] <file> <pattern | column=pattern>...";
+    }
+
+    @Override
+    public void action(String[] args) {
+        final ValidationOptions options = new ValidationOptions();
+        String file = null;
+        int rules = 0;
+
+        try {
+            for(int i = 0; i < args.length; i++){
+                switch(args[i]){
+                    case "-d":
+                        final String delimiter = args[++i];
+                        if(delimiter.length() != 1 && !delimiter.equals("\\t")){
+                            throw new IllegalArgumentException();
+                        }
+                        options.delimiter(delimiter.length() == 1 ? delimiter.charAt(0) : '\t');
+                        break;
+
+                    case "-H":
+                        options.header(true);
+                        break;
+
+                    case "-n":
+                        options.maxReported(Long.parseLong(args[++i]));
+                        break;
+
+                    default:
+                        if(file == null){
+                            file = args[i];
+                        }
+                        else {
+                            addRule(options, args[i]);
+                            rules++;
+                        }
+                }
+            }
+        }
+        catch (final PatternSyntaxException e) {
+            MiniCLI.error("Invalid pattern " + e.getPattern() + ": " + e.getDescription());
+            return;
+        }
+        catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        if(file == null || rules == 0){
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        ValidationCLI.validate(file, options);
+    }
+
+    /*
+    EMAIL, email=EMAIL, 2=^\d+$, ^key=\d+$ ... : an InputPattern name or a regular expression, on the line or on a column
+    (number or header name). A line regex holding '=' stays whole unless what precedes it is a column
+     */
+    private static void addRule(final ValidationOptions options, final String rule) {
+        final int separator = rule.indexOf('=');
+        if(separator < 0 || !COLUMN.matcher(rule.substring(0, separator)).matches()){
+            options.line(pattern(rule));
+            return;
+        }
+
+        final String column = rule.substring(0, separator);
+        final Pattern pattern = pattern(rule.substring(separator + 1));
+        if(Character.isDigit(column.charAt(0))){
+            options.column(Integer.parseInt(column) - 1, pattern);
+        }
+        else {
+            options.column(column, pattern);
+        }
+    }
+
+    private static Pattern pattern(final String value) {
+        for(InputPattern inputPattern : InputPattern.values()){
+            if(inputPattern.name().equalsIgnoreCase(value)){
+                return inputPattern.getPattern();
+            }
+        }
+        return MiniCLI.compile(value);
+    }
+}
@@ -0,0 +1,54 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.jobs.Job;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WaitCommand extends JobCommand {
+
+    @Override
+    public String getName() {
+        return "wait";
+    }
+
+    @Override
+    public String getDescription() {
+        return "wait for background jobs, all of them by default, and display their output";
+    }
+
+    @Override
+    public String getUsage() {
+        return "wait [job...]";
+    }
+
+    @Override
+    public void action(String[] args) {
+        final List<Job> waited = new ArrayList<>();
+        if(args.length == 0){
+            waited.addAll(jobs().list());
+        }
+        else {
+            for(String arg : args){
+                final Job job = findJob(arg);
+                if(job != null){
+                    waited.add(job);
+                }
+            }
+        }
+
+        for(Job job : waited){
+            try {
+                job.await();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            printOutput(job);
+            printStatus(job);
+            jobs().remove(job.getId());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package fr.nkri.shell.cmds;
+
+import fr.nkri.shell.cli.FileCLI;
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.jobs.Job;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Follow a file or watch a folder in the background, printing as changes happen.
+ * The watcher is a job, so the prompt stays available and 'kill' stops it.
+ */
+public class WatchCommand extends AbstractShellCommand {
+
+    @Override
+    public String getName() {
+        return "watch";
+    }
+
+    @Override
+    public String getDescription() {
+        return "in the background, print the lines appended to a file or the changes of a folder (-r recursive)";
+    }
+
+    @Override
+    public String getUsage() {
+        return "watch [-r] <path>";
+    }
+
+    @Override
+    public void action(String[] args) {
+        boolean recursive = false;
+        String path = null;
+
+        for(String arg : args){
+            if(arg.equals("-r")){
+                recursive = true;
+            }
+            else {
+                path = arg;
+            }
+        }
+
+        if(path == null){
+            MiniCLI.error("Usage: " + getUsage());
+            return;
+        }
+
+        final String watched = path;
+        final boolean folder = Files.isDirectory(Paths.get(path));
+        if(!folder && !Files.exists(Paths.get(path))){
+            MiniCLI.error("File not found!");
+            return;
+        }
+
+        final boolean tree = recursive;
+        final Job job = this.shell.getJobManager().submit("watch " + String.join(" ", args), () -> {
+            try {
+                if(folder){
+                    FileCLI.watch(watched, tree, (event, changed) -> {
+                        ShellOutput.println(MiniColor.color(String.format("%-8s", event.getLabel()), event.getColor()) + " " + changed);
+                        ShellOutput.flush();
+                    });
+                }
+                else {
+                    FileCLI.follow(watched, 0, ShellOutput::println);
+                }
+            }
+            catch (final InterruptedException e) {
+                /*
+                Stopped with kill
+                 */
+            }
+        }, false);
+
+        ShellOutput.println("[" + job.getId() + "] watching " + path + " (kill " + job.getId() + " to stop)");
+    }
+}
@@ -0,0 +1,71 @@
+package fr.nkri.shell.completion;
+
+import java.util.List;
+
+/**
+ * Candidates for the word at the end of a line
+ */
+public class Completion {
+
+    private final String line;
+    private final int start;
+    private final List<String> candidates;
+
+    public Completion(final String line, final int start, final List<String> candidates) {
+        this.line = line;
+        this.start = start;
+        this.candidates = candidates;
+    }
+
+    /**
+     * Line with its last word completed : the only candidate followed by a space,
+     * or the text shared by all the candidates
+     * @return completed line, the line itself if nothing can be added
+     */
+    public String getLine() {
+        if(this.candidates.isEmpty()){
+            return this.line;
+        }
+
+        final String head = this.line.substring(0, this.start);
+        if(this.candidates.size() == 1){
+            final String only = this.candidates.get(0);
+            return head + only + (only.endsWith("/") ? "" : " ");
+        }
+
+        String common = this.candidates.get(0);
+        for(String candidate : this.candidates){
+            int length = 0;
+            while(length < common.length() && length < candidate.length() && common.charAt(length) == candidate.charAt(length)){
+                length++;
+            }
+            common = common.substring(0, length);
+        }
+        return common.length() > getWord().length() ? head + common : this.line;
+    }
+
+    /**
+     * @return typed start of the completed word
+     */
+    public String getWord() {
+        return line.substring(start);
+    }
+
+    /**
+     * @return index of the completed word in the line
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return words that can replace the typed one, sorted
+     */
+    public List<String> getCandidates() {
+        return candidates;
+    }
+
+    public boolean isEmpty() {
+        return candidates.isEmpty();
+    }
+}
@@ -0,0 +1,140 @@
+package fr.nkri.shell.completion;
+
+import fr.nkri.shell.cli.FileCLI;
+import fr.nkri.shell.cmds.CommandRegistry;
+import fr.nkri.shell.cmds.ShellCommand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Completes the last word of a command line :
+ * a command name at the start of the line or after a '|', a variable name after '$' or '${',
+ * else the arguments proposed by the command (ShellCommand.complete) or a file path.
+ * Command and variable names are kept in tries updated by the shell as they are registered.
+ */
+public class CompletionEngine {
+
+    public static final int MAX_CANDIDATES = 100;
+
+    private final CommandRegistry registry;
+    private final Trie commands = new Trie(true);
+    private final Trie variables = new Trie();
+
+    /**
+     * @param registry commands of the shell, to find the one completing its arguments
+     */
+    public CompletionEngine(final CommandRegistry registry) {
+        this.registry = registry;
+    }
+
+    public synchronized void addCommand(final ShellCommand command) {
+        this.commands.add(command.getName());
+        for(String alias : command.getAliases()){
+            if(alias != null && !alias.isEmpty()){
+                this.commands.add(alias);
+            }
+        }
+    }
+
+    /**
+     * Forget the names of a command already unregistered, except those still owned by another command
+     * @param command removed command
+     */
+    public synchronized void removeCommand(final ShellCommand command) {
+        removeKey(command.getName());
+        for(String alias : command.getAliases()){
+            removeKey(alias);
+        }
+    }
+
+    private void removeKey(final String key) {
+        if(key != null && !key.isEmpty() && this.registry.get(key) == null){
+            this.commands.remove(key);
+        }
+    }
+
+    public synchronized void addVariable(final String name) {
+        this.variables.add(name);
+    }
+
+    public synchronized void removeVariable(final String name) {
+        this.variables.remove(name);
+    }
+
+    /**
+     * @param line typed line, the word to complete is at its end
+     * @return candidates for the last word
+     */
+    public Completion complete(final String line) {
+        /*
+        Last word and start of the last pipeline stage, outside of quotes
+         */
+        int start = 0;
+        int stage = 0;
+        char quote = 0;
+        for(int i = 0; i < line.length(); i++){
+            final char c = line.charAt(i);
+            if(quote != 0){
+                if(c == quote){
+                    quote = 0;
+                }
+            }
+            else if(c == '"' || c == '\''){
+                quote = c;
+            }
+            else if(c == '|'){
+                start = i + 1;
+                stage = i + 1;
+            }
+            else if(Character.isWhitespace(c)){
+                start = i + 1;
+            }
+        }
+        final String word = line.substring(start);
+
+        final int dollar = word.lastIndexOf('$');
+        if(dollar >= 0){
+            return new Completion(line, start, completeVariable(word, dollar));
+        }
+
+        final String before = line.substring(stage, start).trim();
+        if(before.isEmpty()){
+            synchronized (this) {
+                return new Completion(line, start, this.commands.complete(word, MAX_CANDIDATES));
+            }
+        }
+
+        final String[] tokens = before.split("\\s+");
+        final ShellCommand command = this.registry.resolve(tokens[0]);
+        List<String> candidates = null;
+        if(command != null){
+            try {
+                candidates = command.complete(Arrays.copyOfRange(tokens, 1, tokens.length), word);
+            }
+            catch (final RuntimeException e) {
+                candidates = List.of();
+            }
+        }
+        if(candidates == null){
+            candidates = FileCLI.completePath(word, MAX_CANDIDATES);
+        }
+        return new Completion(line, start, candidates);
+    }
+
+    private synchronized List<String> completeVariable(final String word, final int dollar) {
+        final boolean braced = dollar + 1 < word.length() && word.charAt(dollar + 1) == '{';
+        final String name = word.substring(dollar + (braced ? 2 : 1));
+        if(name.indexOf('}') >= 0){
+            return List.of();
+        }
+
+        final String head = word.substring(0, dollar);
+        final List<String> candidates = new ArrayList<>();
+        for(String variable : this.variables.complete(name, MAX_CANDIDATES)){
+            candidates.add(braced ? head + "${" + variable + "}" : head + "$" + variable);
+        }
+        return candidates;
+    }
+}
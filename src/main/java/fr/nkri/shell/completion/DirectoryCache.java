@@ -0,0 +1,130 @@
+package fr.nkri.shell.completion;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Names of the recently completed directories, kept in tries.
+ * A lookup only reads the directory modification time and lists it again if it changed,
+ * so completing in the same directory at every key press costs one stat, not one listing.
+ */
+public class DirectoryCache {
+
+    public static final int DEFAULT_MAX_DIRECTORIES = 128;
+
+    /*
+    Changes made in the same clock tick as the listing don't move the modification time :
+    a listing taken that close to the last change is not trusted
+     */
+    private static final long RACY_MILLIS = 2000;
+
+    private final Map<Path, Listing> listings;
+
+    /**
+     * @param maxDirectories directories kept, the least recently completed is dropped first
+     */
+    public DirectoryCache(final int maxDirectories) {
+        this.listings = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Path, Listing> eldest) {
+                return size() > maxDirectories;
+            }
+        };
+    }
+
+    public DirectoryCache() {
+        this(DEFAULT_MAX_DIRECTORIES);
+    }
+
+    /**
+     * Names in a directory starting with a prefix, directories end with '/'
+     * @param directory directory to complete in
+     * @param prefix typed start of the name, names starting with '.' only if it does
+     * @param limit max names
+     * @return sorted names, empty if the directory can't be read
+     */
+    public synchronized List<String> complete(final Path directory, final String prefix, final int limit) {
+        final Listing listing = listing(directory);
+        if(listing == null){
+            return List.of();
+        }
+
+        /*
+        Only an empty prefix can match hidden names without asking for them
+         */
+        if(!prefix.isEmpty() || listing.hidden == 0){
+            return listing.names.complete(prefix, limit);
+        }
+        final List<String> found = listing.names.complete(prefix, limit + listing.hidden);
+        found.removeIf(name -> name.startsWith("."));
+        return found.size() > limit ? found.subList(0, limit) : found;
+    }
+
+    /**
+     * Forget every listing
+     */
+    public synchronized void clear() {
+        this.listings.clear();
+    }
+
+    public synchronized int size() {
+        return listings.size();
+    }
+
+    private Listing listing(final Path directory) {
+        final long modified;
+        try {
+            modified = Files.getLastModifiedTime(directory).toMillis();
+        }
+        catch (final IOException e) {
+            this.listings.remove(directory);
+            return null;
+        }
+
+        final Listing cached = this.listings.get(directory);
+        if(cached != null && cached.modified == modified && cached.listedAt - modified >= RACY_MILLIS){
+            return cached;
+        }
+
+        final Trie names = new Trie();
+        int hidden = 0;
+        final long listedAt = System.currentTimeMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for(Path entry : stream){
+                final String name = entry.getFileName().toString();
+                if(name.startsWith(".")){
+                    hidden++;
+                }
+                names.add(Files.isDirectory(entry) ? name + "/" : name);
+            }
+        }
+        catch (final IOException e) {
+            this.listings.remove(directory);
+            return null;
+        }
+
+        final Listing listing = new Listing(modified, listedAt, names, hidden);
+        this.listings.put(directory, listing);
+        return listing;
+    }
+
+    private static final class Listing {
+
+        private final long modified;
+        private final long listedAt;
+        private final Trie names;
+        private final int hidden;
+
+        private Listing(final long modified, final long listedAt, final Trie names, final int hidden) {
+            this.modified = modified;
+            this.listedAt = listedAt;
+            this.names = names;
+            this.hidden = hidden;
+        }
+    }
+}
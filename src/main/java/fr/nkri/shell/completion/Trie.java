@@ -0,0 +1,203 @@
+package fr.nkri.shell.completion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prefix tree of words, updated one word at a time.
+ * Completing a prefix walks its chars then collects the words below, in sorted order,
+ * so its cost depends on the prefix and the results, not on the number of words.
+ */
+public class Trie {
+
+    private final boolean ignoreCase;
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * @param ignoreCase true to match prefixes whatever their case, words are returned as added
+     */
+    public Trie(final boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    public Trie() {
+        this(false);
+    }
+
+    /**
+     * @param word word to add
+     * @return false if already there
+     */
+    public boolean add(final String word) {
+        final String key = fold(word);
+        Node node = this.root;
+        for(int i = 0; i < key.length(); i++){
+            node = node.child(key.charAt(i), true);
+        }
+
+        final boolean added = node.word == null;
+        node.word = word;
+        if(added){
+            this.size++;
+        }
+        return added;
+    }
+
+    /**
+     * @param word word to remove
+     * @return false if not there
+     */
+    public boolean remove(final String word) {
+        final String key = fold(word);
+        final Node[] path = new Node[key.length() + 1];
+        path[0] = this.root;
+        for(int i = 0; i < key.length(); i++){
+            path[i + 1] = path[i].child(key.charAt(i), false);
+            if(path[i + 1] == null){
+                return false;
+            }
+        }
+
+        final Node node = path[key.length()];
+        if(node.word == null){
+            return false;
+        }
+        node.word = null;
+        this.size--;
+
+        /*
+        Drop the branch left without words
+         */
+        for(int i = key.length(); i > 0 && path[i].word == null && path[i].count == 0; i--){
+            path[i - 1].removeChild(key.charAt(i - 1));
+        }
+        return true;
+    }
+
+    public boolean contains(final String word) {
+        final Node node = find(fold(word));
+        return node != null && node.word != null;
+    }
+
+    /**
+     * @param prefix typed prefix
+     * @param limit max words
+     * @return words starting with the prefix, sorted
+     */
+    public List<String> complete(final String prefix, final int limit) {
+        final List<String> words = new ArrayList<>();
+        final Node node = find(fold(prefix));
+        if(node != null){
+            collect(node, words, limit);
+        }
+        return words;
+    }
+
+    /**
+     * Longest text shared by every word starting with the prefix, e.g. "hi" -> "histor" for history and historic
+     * @param prefix typed prefix
+     * @return shared text, the prefix itself if no word starts with it
+     */
+    public String commonPrefix(final String prefix) {
+        final String key = fold(prefix);
+        Node node = find(key);
+        if(node == null){
+            return prefix;
+        }
+
+        final StringBuilder common = new StringBuilder(prefix);
+        while(node.word == null && node.count == 1){
+            common.append(node.keys[0]);
+            node = node.children[0];
+        }
+        return common.toString();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        this.root.count = 0;
+        this.root.keys = Node.NO_KEYS;
+        this.root.children = Node.NO_CHILDREN;
+        this.size = 0;
+    }
+
+    private Node find(final String key) {
+        Node node = this.root;
+        for(int i = 0; i < key.length() && node != null; i++){
+            node = node.child(key.charAt(i), false);
+        }
+        return node;
+    }
+
+    private static void collect(final Node node, final List<String> words, final int limit) {
+        if(words.size() >= limit){
+            return;
+        }
+        if(node.word != null){
+            words.add(node.word);
+        }
+        for(int i = 0; i < node.count && words.size() < limit; i++){
+            collect(node.children[i], words, limit);
+        }
+    }
+
+    private String fold(final String word) {
+        return this.ignoreCase ? word.toLowerCase(Locale.ROOT) : word;
+    }
+
+    /*
+    Children sorted by char, found by binary search
+     */
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int count;
+        private String word;
+
+        private Node child(final char key, final boolean create) {
+            final int index = Arrays.binarySearch(this.keys, 0, this.count, key);
+            if(index >= 0){
+                return this.children[index];
+            }
+            if(!create){
+                return null;
+            }
+
+            final int insert = -index - 1;
+            if(this.count == this.keys.length){
+                final int capacity = Math.max(2, this.count * 2);
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.children = Arrays.copyOf(this.children, capacity);
+            }
+            System.arraycopy(this.keys, insert, this.keys, insert + 1, this.count - insert);
+            System.arraycopy(this.children, insert, this.children, insert + 1, this.count - insert);
+
+            final Node child = new Node();
+            this.keys[insert] = key;
+            this.children[insert] = child;
+            this.count++;
+            return child;
+        }
+
+        private void removeChild(final char key) {
+            final int index = Arrays.binarySearch(this.keys, 0, this.count, key);
+            if(index < 0){
+                return;
+            }
+            System.arraycopy(this.keys, index + 1, this.keys, index, this.count - index - 1);
+            System.arraycopy(this.children, index + 1, this.children, index, this.count - index - 1);
+            this.count--;
+            this.children[this.count] = null;
+        }
+    }
+}
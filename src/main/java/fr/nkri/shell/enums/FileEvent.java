@@ -0,0 +1,50 @@
+package fr.nkri.shell.enums;
+
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+
+public enum FileEvent {
+
+    CREATED("created", MiniColor.GREEN),
+    MODIFIED("modified", MiniColor.YELLOW),
+    DELETED("deleted", MiniColor.RED),
+    ;
+
+    private final String label;
+    private final MiniColor color;
+
+    /**
+     * Change reported by FileCLI.watch
+     * @param label name displayed by the watch command
+     * @param color color of the label
+     */
+    FileEvent(final String label, final MiniColor color) {
+        this.label = label;
+        this.color = color;
+    }
+
+    /**
+     * @param kind WatchService event kind
+     * @return matching event, null for OVERFLOW
+     */
+    public static FileEvent of(final WatchEvent.Kind<?> kind) {
+        if(kind == StandardWatchEventKinds.ENTRY_CREATE){
+            return CREATED;
+        }
+        if(kind == StandardWatchEventKinds.ENTRY_MODIFY){
+            return MODIFIED;
+        }
+        if(kind == StandardWatchEventKinds.ENTRY_DELETE){
+            return DELETED;
+        }
+        return null;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public MiniColor getColor() {
+        return color;
+    }
+}
@@ -0,0 +1,22 @@
+package fr.nkri.shell.enums;
+
+public enum FileSort {
+
+    /*
+    Order of the file system, entries are printed as soon as they are found
+     */
+    NONE,
+    NAME,
+
+    /*
+    Biggest first
+     */
+    SIZE,
+
+    /*
+    Most recent first
+     */
+    MODIFIED,
+    ;
+
+}
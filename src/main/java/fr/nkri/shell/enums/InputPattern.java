@@ -1,5 +1,7 @@
 package fr.nkri.shell.enums;
 
+import java.util.regex.Pattern;
+
 public enum InputPattern {
 
     EMAIL("^[\\w.-]+@[\\w.-]+\\.[a-zA-Z]{2,6}$"),
@@ -57,13 +59,29 @@ public enum InputPattern {
 
     private final String regex;
 
+    /*
+    Compiled once, a Pattern can be shared by every thread
+     */
+    private final Pattern pattern;
+
     /**
      * Enum for common input patterns using regular expressions.
      * @param regex code regex
      */
     private InputPattern(final String regex) {
         this.regex = regex;
+        this.pattern = Pattern.compile(regex);
+    }
+
+    /**
+     * @param input text to check
+     * @return true if the whole text matches this pattern
+     */
+    public boolean matches(final CharSequence input) {
+        return this.pattern.matcher(input).matches();
     }
 
     public String getRegex() { return regex; }
+
+    public Pattern getPattern() { return pattern; }
 }
@@ -0,0 +1,28 @@
+package fr.nkri.shell.enums;
+
+public enum JobState {
+
+    RUNNING("Running"),
+    DONE("Done"),
+    FAILED("Failed"),
+    CANCELLED("Killed"),
+    ;
+
+    private final String label;
+
+    /**
+     * State of a background job
+     * @param label name displayed by the jobs command
+     */
+    JobState(final String label) {
+        this.label = label;
+    }
+
+    public boolean isFinished() {
+        return this != RUNNING;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -1,5 +1,7 @@
 package fr.nkri.shell.enums;
 
+import fr.nkri.shell.io.Terminal;
+
 public enum MiniColor {
 
     /*
@@ -46,9 +48,12 @@ public enum MiniColor {
      * Displays a color with automatic reset
      * @param message display message
      * @param color color message
-     * @return message with color
+     * @return message with color, the message alone if the terminal has no colors
      */
     public static String color(final String message, final MiniColor color) {
+        if(!Terminal.hasColors()){
+            return message;
+        }
         return color + message + RESET;
     }
 
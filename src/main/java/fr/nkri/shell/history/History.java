@@ -0,0 +1,347 @@
+package fr.nkri.shell.history;
+
+import fr.nkri.shell.cli.MiniCLI;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Command history : the last entries in a ring buffer, indexed by trigrams
+ * so a search among hundreds of thousands of lines only checks a few of them.
+ * An history opened on a file reloads its last entries and appends the new ones
+ * from a background thread, the file is compacted once it holds twice the capacity.
+ */
+public class History implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    private final HistoryEntry[] ring;
+    private final HistoryIndex index;
+    private final HistoryLog log;
+
+    /*
+    Number of the next entry, entries below oldest() are evicted
+     */
+    private long next = 1;
+
+    /*
+    Evictions since the index was built, their trigrams are dropped once they reach the capacity
+     */
+    private long evicted;
+
+    /**
+     * History kept in memory only
+     * @param capacity max entries kept
+     */
+    public History(final int capacity) {
+        this(capacity, null, List.of());
+    }
+
+    private History(final int capacity, final HistoryLog log, final List<HistoryEntry> entries) {
+        if(capacity <= 0){
+            throw new IllegalArgumentException("Capacity must be positive!");
+        }
+        this.ring = new HistoryEntry[capacity];
+        this.index = new HistoryIndex();
+        this.log = log;
+
+        for(HistoryEntry entry : entries){
+            store(entry);
+        }
+    }
+
+    /**
+     * History saved to a file, its last entries are loaded
+     * @param file history file, created if missing
+     * @param capacity max entries kept
+     * @return history of the file, or kept in memory only if the file can't be read
+     */
+    public static History open(final Path file, final int capacity) {
+        final List<HistoryEntry> entries = new ArrayList<>();
+        try {
+            return new History(capacity, HistoryLog.open(file, capacity, entries), entries);
+        }
+        catch (final IOException e) {
+            MiniCLI.error("Error reading history file: " + e.getMessage());
+            return new History(capacity);
+        }
+    }
+
+    public static History open(final Path file) {
+        return open(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Record a command line, blank lines and repeats of the last line are skipped
+     * @param line typed line
+     * @return recorded entry or null if skipped
+     */
+    public synchronized HistoryEntry add(final String line) {
+        if(line == null || line.isBlank()){
+            return null;
+        }
+        final HistoryEntry last = last();
+        if(last != null && last.getLine().equals(line)){
+            return null;
+        }
+
+        final HistoryEntry entry = new HistoryEntry(this.next, System.currentTimeMillis(), line);
+        store(entry);
+
+        if(this.log != null){
+            this.log.append(entry);
+            if(this.log.getLines() > 2L * this.ring.length){
+                this.log.compact(last(this.ring.length));
+            }
+        }
+        return entry;
+    }
+
+    private void store(final HistoryEntry entry) {
+        if(this.next > this.ring.length){
+            this.evicted++;
+        }
+        this.ring[slot(entry.getNumber())] = entry;
+        this.next = entry.getNumber() + 1;
+
+        if(this.evicted >= this.ring.length){
+            /*
+            Rebuild from the live entries, so the postings of evicted ones don't grow forever
+             */
+            this.index.clear();
+            for(long number = oldest(); number < this.next; number++){
+                this.index.add(number, this.ring[slot(number)].lowerCase);
+            }
+            this.evicted = 0;
+        }
+        else {
+            this.index.add(entry.getNumber(), entry.lowerCase);
+        }
+    }
+
+    /**
+     * @param number entry number
+     * @return entry or null if unknown or evicted
+     */
+    public synchronized HistoryEntry get(final long number) {
+        if(number < oldest() || number >= this.next){
+            return null;
+        }
+        return this.ring[slot(number)];
+    }
+
+    /**
+     * @return newest entry or null if empty
+     */
+    public synchronized HistoryEntry last() {
+        return get(this.next - 1);
+    }
+
+    /**
+     * @param count max entries
+     * @return newest entries, oldest first, none if count is not positive
+     */
+    public synchronized List<HistoryEntry> last(final int count) {
+        if(count <= 0){
+            return new ArrayList<>();
+        }
+        final long from = Math.max(oldest(), this.next - count);
+        final List<HistoryEntry> entries = new ArrayList<>((int) (this.next - from));
+        for(long number = from; number < this.next; number++){
+            entries.add(this.ring[slot(number)]);
+        }
+        return entries;
+    }
+
+    /**
+     * Entries containing a text, ignoring case
+     * @param text searched text
+     * @param limit max entries
+     * @return matching entries, newest first
+     */
+    public synchronized List<HistoryEntry> search(final String text, final int limit) {
+        final String lowerCase = text.toLowerCase(Locale.ROOT);
+        final List<HistoryEntry> entries = new ArrayList<>();
+        if(lowerCase.length() < 3){
+            for(long number = this.next - 1; number >= oldest() && entries.size() < limit; number--){
+                final HistoryEntry entry = this.ring[slot(number)];
+                if(entry.lowerCase.contains(lowerCase)){
+                    entries.add(entry);
+                }
+            }
+            return entries;
+        }
+
+        final HistoryIndex.Postings candidates = this.index.candidates(lowerCase);
+        if(candidates == null){
+            return entries;
+        }
+        final long oldest = oldest();
+        for(int i = candidates.size() - 1; i >= 0 && entries.size() < limit; i--){
+            final long number = candidates.get(i);
+            if(number < oldest){
+                break;
+            }
+            final HistoryEntry entry = this.ring[slot(number)];
+            if(entry.lowerCase.contains(lowerCase)){
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Newest entry starting with a prefix, as used by !prefix
+     * @param prefix start of the line, case sensitive
+     * @return entry or null if none
+     */
+    public synchronized HistoryEntry findPrefix(final String prefix) {
+        final long oldest = oldest();
+        final String lowerCase = prefix.toLowerCase(Locale.ROOT);
+        if(lowerCase.length() < 3){
+            for(long number = this.next - 1; number >= oldest; number--){
+                final HistoryEntry entry = this.ring[slot(number)];
+                if(entry.getLine().startsWith(prefix)){
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        final HistoryIndex.Postings candidates = this.index.candidates(lowerCase);
+        if(candidates == null){
+            return null;
+        }
+        for(int i = candidates.size() - 1; i >= 0; i--){
+            final long number = candidates.get(i);
+            if(number < oldest){
+                break;
+            }
+            final HistoryEntry entry = this.ring[slot(number)];
+            if(entry.getLine().startsWith(prefix)){
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace a leading history reference : !! (last line), !n (entry n), !-n (n-th last) or !prefix.
+     * The rest of the line is kept, e.g. "!! | grep x"
+     * @param line typed line
+     * @return line to run, the line itself if it holds no reference, or null if the entry is not found
+     */
+    public String expand(final String line) {
+        if(line.length() < 2 || line.charAt(0) != '!' || Character.isWhitespace(line.charAt(1)) || line.charAt(1) == '='){
+            return line;
+        }
+
+        final HistoryEntry entry;
+        final int end;
+        if(line.charAt(1) == '!'){
+            entry = last();
+            end = 2;
+        }
+        else {
+            int i = 1;
+            while(i < line.length() && !Character.isWhitespace(line.charAt(i))){
+                i++;
+            }
+            end = i;
+
+            final String reference = line.substring(1, end);
+            if(reference.matches("-?\\d+")){
+                entry = byNumber(reference);
+            }
+            else {
+                entry = findPrefix(reference);
+            }
+        }
+
+        if(entry == null){
+            MiniCLI.error(line.substring(0, end) + ": event not found");
+            return null;
+        }
+        return entry.getLine() + line.substring(end);
+    }
+
+    /*
+    !n or !-n, a number too large for any entry matches nothing
+     */
+    private HistoryEntry byNumber(final String reference) {
+        final long number;
+        try {
+            number = Long.parseLong(reference);
+        }
+        catch (final NumberFormatException e) {
+            return null;
+        }
+        return number < 0 ? get(nextNumber() + number) : get(number);
+    }
+
+    /**
+     * Forget every entry, the file is emptied too
+     */
+    public synchronized void clear() {
+        for(long number = oldest(); number < this.next; number++){
+            this.ring[slot(number)] = null;
+        }
+        this.index.clear();
+        this.evicted = 0;
+        this.next = 1;
+
+        if(this.log != null){
+            this.log.compact(List.of());
+        }
+    }
+
+    /**
+     * Rewrite the history file with only the entries in memory, in the background
+     */
+    public synchronized void compact() {
+        if(this.log != null){
+            this.log.compact(last(this.ring.length));
+        }
+    }
+
+    /**
+     * @return entries kept in memory
+     */
+    public synchronized int size() {
+        return (int) (this.next - oldest());
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public boolean isPersistent() {
+        return log != null;
+    }
+
+    /**
+     * Write the entries still queued to the file
+     */
+    @Override
+    public void close() {
+        if(this.log != null){
+            this.log.close();
+        }
+    }
+
+    private synchronized long nextNumber() {
+        return next;
+    }
+
+    private long oldest() {
+        return Math.max(1, this.next - this.ring.length);
+    }
+
+    private int slot(final long number) {
+        return (int) ((number - 1) % this.ring.length);
+    }
+}
@@ -0,0 +1,49 @@
+package fr.nkri.shell.history;
+
+import java.util.Locale;
+
+/**
+ * One command line of the history
+ */
+public class HistoryEntry {
+
+    private final long number;
+    private final long timestamp;
+    private final String line;
+
+    /*
+    Lower case line for case insensitive search, the line itself if already lower case
+     */
+    final String lowerCase;
+
+    public HistoryEntry(final long number, final long timestamp, final String line) {
+        this.number = number;
+        this.timestamp = timestamp;
+        this.line = line;
+        final String lower = line.toLowerCase(Locale.ROOT);
+        this.lowerCase = lower.equals(line) ? line : lower;
+    }
+
+    /**
+     * @return number of the entry, as used by !n, starting at 1
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * @return time the line was entered, in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%6d  %s", number, line);
+    }
+}
@@ -0,0 +1,78 @@
+package fr.nkri.shell.history;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Trigram index of the history : every 3 chars sequence of a lower case line
+ * points to the ascending numbers of the entries holding it.
+ * A search only verifies the entries of its rarest trigram, newest first.
+ */
+final class HistoryIndex {
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    void add(final long number, final String lowerCase) {
+        for(int i = 0; i + 3 <= lowerCase.length(); i++){
+            final Postings list = this.postings.computeIfAbsent(trigram(lowerCase, i), key -> new Postings());
+
+            /*
+            Numbers are added in ascending order : a trigram seen twice in the line is already there
+             */
+            if(list.size == 0 || list.numbers[list.size - 1] != number){
+                list.add(number);
+            }
+        }
+    }
+
+    /**
+     * @param lowerCase lower case text of at least 3 chars
+     * @return postings of its rarest trigram, null if one of its trigrams is in no entry
+     */
+    Postings candidates(final String lowerCase) {
+        Postings rarest = null;
+        for(int i = 0; i + 3 <= lowerCase.length(); i++){
+            final Postings list = this.postings.get(trigram(lowerCase, i));
+            if(list == null){
+                return null;
+            }
+            if(rarest == null || list.size < rarest.size){
+                rarest = list;
+            }
+        }
+        return rarest;
+    }
+
+    void clear() {
+        this.postings.clear();
+    }
+
+    private static long trigram(final String text, final int index) {
+        return (long) text.charAt(index) << 32 | (long) text.charAt(index + 1) << 16 | text.charAt(index + 2);
+    }
+
+    /*
+    Growable array of entry numbers
+     */
+    static final class Postings {
+
+        private long[] numbers = new long[4];
+        private int size;
+
+        private void add(final long number) {
+            if(this.size == this.numbers.length){
+                this.numbers = Arrays.copyOf(this.numbers, this.size * 2);
+            }
+            this.numbers[this.size++] = number;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(final int index) {
+            return numbers[index];
+        }
+    }
+}
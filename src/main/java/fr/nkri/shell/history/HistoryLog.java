@@ -0,0 +1,294 @@
+package fr.nkri.shell.history;
+
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.io.LineReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only history file, one "epochMillis:line" per line.
+ * The prompt only queues the entries, a background thread writes them in batches
+ * and rewrites the file with the entries kept in memory when asked to compact.
+ */
+final class HistoryLog implements Closeable {
+
+    private static final Object CLOSE = new Object();
+
+    private final Path file;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    /*
+    Lines in the file, written or queued
+     */
+    private final AtomicLong lines;
+
+    private FileChannel channel;
+    private volatile boolean failed;
+
+    private HistoryLog(final Path file, final long lines) throws IOException {
+        this.file = file;
+        this.lines = new AtomicLong(lines);
+        this.channel = open(file);
+        this.writer = Thread.ofPlatform().daemon().name("history-writer").start(this::write);
+    }
+
+    /**
+     * Read the last entries of a history file and open it for appending
+     * @param file history file, created if missing
+     * @param capacity max entries to keep
+     * @param entries receives the entries read, oldest first
+     * @return log appending to the file
+     */
+    static HistoryLog open(final Path file, final int capacity, final List<HistoryEntry> entries) throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        if(parent != null){
+            Files.createDirectories(parent);
+        }
+
+        long lines = 0;
+        if(Files.exists(file)){
+            final Deque<HistoryEntry> last = new ArrayDeque<>(Math.min(capacity, 1 << 16));
+            try (LineReader reader = new LineReader(FileChannel.open(file, StandardOpenOption.READ), StandardCharsets.UTF_8)) {
+                String line;
+                while((line = reader.readLine()) != null){
+                    lines++;
+                    final HistoryEntry entry = decode(last.size() + 1, line);
+                    if(entry == null){
+                        continue;
+                    }
+                    if(last.size() == capacity){
+                        last.removeFirst();
+                    }
+                    last.addLast(entry);
+                }
+            }
+
+            long number = 1;
+            for(HistoryEntry entry : last){
+                entries.add(new HistoryEntry(number++, entry.getTimestamp(), entry.getLine()));
+            }
+        }
+        return new HistoryLog(file, lines);
+    }
+
+    /**
+     * Queue an entry, never blocks
+     */
+    void append(final HistoryEntry entry) {
+        if(this.failed){
+            return;
+        }
+        this.lines.incrementAndGet();
+        this.queue.add(entry);
+    }
+
+    /**
+     * Queue a rewrite of the file with only the given entries
+     * @param entries entries kept, oldest first
+     */
+    void compact(final List<HistoryEntry> entries) {
+        if(this.failed){
+            return;
+        }
+        this.lines.set(entries.size());
+        this.queue.add(new Compaction(entries));
+    }
+
+    /**
+     * @return lines of the file, queued ones included
+     */
+    long getLines() {
+        return lines.get();
+    }
+
+    /**
+     * Write the queued entries and stop the writer
+     */
+    @Override
+    public void close() {
+        this.queue.add(CLOSE);
+        try {
+            this.writer.join(TimeUnit.SECONDS.toMillis(2));
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+    Writer thread : drain the queue, one write per batch of entries
+     */
+    private void write() {
+        final List<Object> batch = new ArrayList<>();
+        final StringBuilder text = new StringBuilder(4096);
+        try {
+            while(true){
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch);
+
+                for(Object item : batch){
+                    if(item instanceof HistoryEntry entry){
+                        encode(entry, text);
+                    }
+                    else if(item instanceof Compaction compaction){
+                        text.setLength(0);
+                        rewrite(compaction.entries);
+                    }
+                    else if(item == CLOSE){
+                        flush(text);
+                        this.channel.close();
+                        return;
+                    }
+                }
+                flush(text);
+                batch.clear();
+            }
+        }
+        catch (final IOException e) {
+            this.failed = true;
+            MiniCLI.error("History file error: " + e.getMessage());
+            try {
+                this.channel.close();
+            }
+            catch (final IOException ignored) {
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(final StringBuilder text) throws IOException {
+        if(text.isEmpty()){
+            return;
+        }
+        final ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+        while(bytes.hasRemaining()){
+            this.channel.write(bytes);
+        }
+        text.setLength(0);
+    }
+
+    /*
+    Write the kept entries to a temporary file then swap it with the history file
+     */
+    private void rewrite(final List<HistoryEntry> entries) throws IOException {
+        final Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final StringBuilder text = new StringBuilder(1 << 16);
+            for(HistoryEntry entry : entries){
+                encode(entry, text);
+                if(text.length() >= 1 << 16){
+                    final ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+                    while(bytes.hasRemaining()){
+                        out.write(bytes);
+                    }
+                    text.setLength(0);
+                }
+            }
+            final ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+            while(bytes.hasRemaining()){
+                out.write(bytes);
+            }
+            out.force(false);
+        }
+
+        this.channel.close();
+        Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.channel = open(this.file);
+    }
+
+    private static FileChannel open(final Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /*
+    Line breaks and backslashes are escaped, so one entry is always one line
+     */
+    private static void encode(final HistoryEntry entry, final StringBuilder text) {
+        text.append(entry.getTimestamp()).append(':');
+        final String line = entry.getLine();
+        for(int i = 0; i < line.length(); i++){
+            final char c = line.charAt(i);
+            switch(c){
+                case '\\':
+                    text.append("\\\\");
+                    break;
+
+                case '\n':
+                    text.append("\\n");
+                    break;
+
+                case '\r':
+                    text.append("\\r");
+                    break;
+
+                default:
+                    text.append(c);
+                    break;
+            }
+        }
+        text.append('\n');
+    }
+
+    /*
+    Entry of a file line, null if the line is not an entry
+     */
+    private static HistoryEntry decode(final long number, final String text) {
+        final int separator = text.indexOf(':');
+        if(separator <= 0){
+            return null;
+        }
+
+        final long timestamp;
+        try {
+            timestamp = Long.parseLong(text, 0, separator, 10);
+        }
+        catch (final NumberFormatException e) {
+            return null;
+        }
+
+        if(text.indexOf('\\', separator) < 0){
+            return new HistoryEntry(number, timestamp, text.substring(separator + 1));
+        }
+
+        final StringBuilder line = new StringBuilder(text.length() - separator);
+        for(int i = separator + 1; i < text.length(); i++){
+            final char c = text.charAt(i);
+            if(c != '\\' || i + 1 == text.length()){
+                line.append(c);
+                continue;
+            }
+
+            final char escaped = text.charAt(++i);
+            line.append(escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+        }
+        return new HistoryEntry(number, timestamp, line.toString());
+    }
+
+    private static final class Compaction {
+
+        private final List<HistoryEntry> entries;
+
+        private Compaction(final List<HistoryEntry> entries) {
+            this.entries = entries;
+        }
+    }
+}
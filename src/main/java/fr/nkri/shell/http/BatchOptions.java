@@ -0,0 +1,41 @@
+package fr.nkri.shell.http;
+
+/**
+ * Options of HttpBatch.run
+ */
+public class BatchOptions {
+
+    private int concurrency = 32;
+    private boolean ordered;
+
+    /**
+     * @param concurrency max requests in flight at once, the inputs are read as slots free up
+     * @return these options
+     */
+    public BatchOptions concurrency(final int concurrency) {
+        if(concurrency < 1){
+            throw new IllegalArgumentException("Concurrency must be at least 1!");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * In input order, a slow request holds the next results back, its slot included,
+     * so at most concurrency results are ever waiting
+     * @param ordered true to get the results in input order, false in completion order
+     * @return these options
+     */
+    public BatchOptions ordered(final boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+}
@@ -0,0 +1,72 @@
+package fr.nkri.shell.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one request of a batch
+ */
+public class BatchResult {
+
+    private final long index;
+    private final String input;
+    private final int statusCode;
+    private final String body;
+    private final Throwable error;
+    private final long latencyNanos;
+
+    /**
+     * Batch result
+     * @param index position of the input, from 0
+     * @param input input line the request was built from
+     * @param statusCode HTTP status, -1 if no response
+     * @param body response body, null if no response
+     * @param error failure of the request, null if a response came
+     * @param latencyNanos time from sending to the full body
+     */
+    public BatchResult(final long index, final String input, final int statusCode, final String body, final Throwable error, final long latencyNanos) {
+        this.index = index;
+        this.input = input;
+        this.statusCode = statusCode;
+        this.body = body;
+        this.error = error;
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * @return true if a 2xx response came
+     */
+    public boolean isSuccess() {
+        return error == null && statusCode / 100 == 2;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        final String outcome = error != null ? "ERROR " + (error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName())
+                : String.valueOf(statusCode);
+        return "#" + index + " " + input + " -> " + outcome + " (" + TimeUnit.NANOSECONDS.toMillis(latencyNanos) + "ms)";
+    }
+}
@@ -0,0 +1,84 @@
+package fr.nkri.shell.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totals of a batch run
+ */
+public class BatchSummary {
+
+    private final long total;
+    private final long failed;
+    private final long elapsedNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+
+    /**
+     * Batch summary
+     * @param total requests run
+     * @param failed requests with an error or a non 2xx status
+     * @param elapsedNanos wall time of the whole batch
+     * @param p50Nanos median latency
+     * @param p90Nanos 90th percentile latency
+     * @param p99Nanos 99th percentile latency
+     * @param maxNanos max latency
+     */
+    public BatchSummary(final long total, final long failed, final long elapsedNanos,
+                        final long p50Nanos, final long p90Nanos, final long p99Nanos, final long maxNanos) {
+        this.total = total;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getSucceeded() {
+        return total - failed;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return requests per second, 0 if nothing ran
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : total / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests, %d failed in %dms (%.1f req/s) latency p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                total, failed, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput(),
+                p50Nanos / 1e6, p90Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6);
+    }
+}
@@ -0,0 +1,111 @@
+package fr.nkri.shell.http;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Tail-latency controls of a call : deadline, retries and hedging
+ */
+public class CallPolicy {
+
+    private Duration deadline;
+    private int maxRetries;
+    private Duration backoff = Duration.ofMillis(100);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+    private Set<Integer> retryStatuses = Set.of(429, 502, 503, 504);
+    private boolean hedging;
+    private Duration hedgeDelay = Duration.ofMillis(100);
+    private double hedgePercentile = 95;
+
+    /**
+     * @param deadline max time for the whole call, retries and hedges included, null for none
+     * @return this policy
+     */
+    public CallPolicy deadline(final Duration deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Retries wait a random time up to backoff * 2^attempt (full jitter), capped by maxBackoff,
+     * and each one needs a token of the retry budget
+     * @param maxRetries max retries after the first attempt
+     * @param backoff base wait before a retry
+     * @param maxBackoff max wait before a retry
+     * @return this policy
+     */
+    public CallPolicy retries(final int maxRetries, final Duration backoff, final Duration maxBackoff) {
+        this.maxRetries = maxRetries;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    public CallPolicy retries(final int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Connection errors and timeouts are always retried
+     * @param retryStatuses response statuses retried as well, 429 502 503 504 by default
+     * @return this policy
+     */
+    public CallPolicy retryStatuses(final Set<Integer> retryStatuses) {
+        this.retryStatuses = retryStatuses;
+        return this;
+    }
+
+    /**
+     * Send a duplicate request when the first one is slower than the usual latency of its host,
+     * and keep whichever response comes first. Hedges use the retry budget too.
+     * @param fallbackDelay wait before the duplicate until the host has enough latency samples
+     * @return this policy
+     */
+    public CallPolicy hedge(final Duration fallbackDelay) {
+        this.hedging = true;
+        this.hedgeDelay = fallbackDelay;
+        return this;
+    }
+
+    /**
+     * @param hedgePercentile latency percentile of the host after which the duplicate is sent, 95 by default
+     * @return this policy
+     */
+    public CallPolicy hedgePercentile(final double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+        return this;
+    }
+
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public Duration getBackoff() {
+        return backoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public Set<Integer> getRetryStatuses() {
+        return retryStatuses;
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    public Duration getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+}
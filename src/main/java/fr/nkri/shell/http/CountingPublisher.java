@@ -0,0 +1,60 @@
+package fr.nkri.shell.http;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request body publisher counting the bytes another one sends, e.g. the ofFile publisher
+ */
+public class CountingPublisher implements HttpRequest.BodyPublisher {
+
+    private final HttpRequest.BodyPublisher delegate;
+    private final TransferListener listener;
+
+    /**
+     * Counting publisher
+     * @param delegate publisher producing the body
+     * @param listener notified after each sent buffer
+     */
+    public CountingPublisher(final HttpRequest.BodyPublisher delegate, final TransferListener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public long contentLength() {
+        return this.delegate.contentLength();
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super ByteBuffer> subscriber) {
+        final long total = contentLength();
+        final AtomicLong sent = new AtomicLong();
+
+        this.delegate.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(final Flow.Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(final ByteBuffer buffer) {
+                final long count = sent.addAndGet(buffer.remaining());
+                subscriber.onNext(buffer);
+                listener.onProgress(count, total);
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+}
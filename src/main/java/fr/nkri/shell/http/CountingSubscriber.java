@@ -0,0 +1,62 @@
+package fr.nkri.shell.http;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Body subscriber counting the bytes handed to another one, e.g. the ofFile subscriber.
+ * The buffers are passed through untouched, no copy is made.
+ */
+public class CountingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+    private final HttpResponse.BodySubscriber<T> delegate;
+    private final long total;
+    private final TransferListener listener;
+    private long received;
+
+    /**
+     * Counting subscriber
+     * @param delegate subscriber consuming the body
+     * @param total expected bytes, -1 if unknown
+     * @param listener notified after each received batch
+     */
+    public CountingSubscriber(final HttpResponse.BodySubscriber<T> delegate, final long total, final TransferListener listener) {
+        this.delegate = delegate;
+        this.total = total;
+        this.listener = listener;
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+        return this.delegate.getBody();
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        this.delegate.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(final List<ByteBuffer> buffers) {
+        for(ByteBuffer buffer : buffers){
+            this.received += buffer.remaining();
+        }
+
+        this.delegate.onNext(buffers);
+        this.listener.onProgress(this.received, this.total);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        this.delegate.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        this.delegate.onComplete();
+        this.listener.onProgress(this.received, this.total < 0 ? this.received : this.total);
+    }
+}
@@ -0,0 +1,91 @@
+package fr.nkri.shell.http;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous semaphore capping the requests in flight to one host.
+ * A request over the limit gets a future completed once a permit is released,
+ * so thousands of queued requests do not hold any thread.
+ */
+public class HostLimiter {
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    private final int maxPermits;
+    private final ArrayDeque<CompletableFuture<Void>> waiters;
+    private int inFlight;
+
+    /**
+     * Host limiter
+     * @param maxPermits max requests in flight
+     */
+    public HostLimiter(final int maxPermits) {
+        this.maxPermits = maxPermits;
+        this.waiters = new ArrayDeque<>();
+    }
+
+    /**
+     * Take a permit
+     * @return future completed once the permit is granted, release() must then be called once
+     */
+    public CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if(this.inFlight < this.maxPermits){
+                this.inFlight++;
+                return GRANTED;
+            }
+
+            final CompletableFuture<Void> waiter = new CompletableFuture<>();
+            this.waiters.addLast(waiter);
+            return waiter;
+        }
+    }
+
+    /**
+     * Leave the queue, for a request cancelled before it was sent
+     * @param waiter future returned by acquire()
+     * @return true if the permit was not granted, false if it was and release() must still be called
+     */
+    public boolean cancel(final CompletableFuture<Void> waiter) {
+        synchronized (this) {
+            this.waiters.remove(waiter);
+        }
+        return waiter.cancel(false);
+    }
+
+    /**
+     * Give a permit back, handing it to the first waiter still interested
+     */
+    public void release() {
+        while(true){
+            final CompletableFuture<Void> next;
+            synchronized (this) {
+                next = this.waiters.pollFirst();
+                if(next == null){
+                    this.inFlight--;
+                    return;
+                }
+            }
+
+            /*
+            A cancelled waiter does not take the permit
+             */
+            if(next.complete(null)){
+                return;
+            }
+        }
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+}
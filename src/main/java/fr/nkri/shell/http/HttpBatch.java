@@ -0,0 +1,154 @@
+package fr.nkri.shell.http;
+
+import fr.nkri.shell.metrics.LatencyHistogram;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs one request per input (URL, payload...) with a bounded number in flight.
+ * Inputs are read lazily, only when a slot frees up, so a file of millions of lines works.
+ * Every input gets a result, failed ones included, in completion or input order.
+ */
+public class HttpBatch {
+
+    private final HttpEngine engine;
+
+    public HttpBatch(final HttpEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Run a request per input and wait for all of them
+     * @param inputs inputs, read from the calling thread
+     * @param requests builds the request of an input
+     * @param options concurrency window and result order
+     * @param consumer receives each result, one at a time
+     * @return totals, throughput and latency percentiles
+     * @throws InterruptedException if interrupted while waiting, the requests in flight are not cancelled
+     * @throws RuntimeException the first exception thrown by the consumer, once every result was handed over
+     */
+    public BatchSummary run(final Iterator<String> inputs, final Function<String, HttpRequest> requests,
+                            final BatchOptions options, final Consumer<BatchResult> consumer) throws InterruptedException {
+        final Semaphore window = new Semaphore(options.getConcurrency());
+        final Collector collector = new Collector(window, options.isOrdered(), consumer);
+        final long start = System.nanoTime();
+        long index = 0;
+
+        while(inputs.hasNext()){
+            final String input = inputs.next();
+            window.acquire();
+            final long current = index++;
+
+            final HttpRequest request;
+            try {
+                request = requests.apply(input);
+            }
+            catch (final RuntimeException e) {
+                collector.complete(new BatchResult(current, input, -1, null, e, 0));
+                continue;
+            }
+
+            final long sent = System.nanoTime();
+            this.engine.send(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+                final long latency = System.nanoTime() - sent;
+                collector.complete(error != null
+                        ? new BatchResult(current, input, -1, null, unwrap(error), latency)
+                        : new BatchResult(current, input, response.statusCode(), response.body(), null, latency));
+            });
+        }
+
+        /*
+        Every slot back : every result delivered
+         */
+        window.acquire(options.getConcurrency());
+        if(collector.consumerError != null){
+            throw collector.consumerError;
+        }
+
+        final LatencyHistogram latencies = collector.latencies;
+        return new BatchSummary(index, collector.failed.sum(), System.nanoTime() - start,
+                latencies.getPercentile(50), latencies.getPercentile(90), latencies.getPercentile(99), latencies.getMax());
+    }
+
+    private static Throwable unwrap(final Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /*
+    Hands the results over one at a time, reordering them if needed, and frees their slot
+     */
+    private static final class Collector {
+
+        private final Semaphore window;
+        private final boolean ordered;
+        private final Consumer<BatchResult> consumer;
+        private final LatencyHistogram latencies;
+        private final LongAdder failed;
+
+        /*
+        Results waiting for an earlier one, in input order mode
+         */
+        private final Map<Long, BatchResult> waiting;
+        private long next;
+
+        private volatile RuntimeException consumerError;
+
+        private Collector(final Semaphore window, final boolean ordered, final Consumer<BatchResult> consumer) {
+            this.window = window;
+            this.ordered = ordered;
+            this.consumer = consumer;
+            this.latencies = new LatencyHistogram();
+            this.failed = new LongAdder();
+            this.waiting = new HashMap<>();
+        }
+
+        private void complete(final BatchResult result) {
+            if(result.getStatusCode() != -1){
+                this.latencies.record(result.getLatencyNanos());
+            }
+            if(!result.isSuccess()){
+                this.failed.increment();
+            }
+
+            synchronized (this) {
+                if(!this.ordered){
+                    deliver(result);
+                    return;
+                }
+
+                this.waiting.put(result.getIndex(), result);
+                BatchResult ready;
+                while((ready = this.waiting.remove(this.next)) != null){
+                    this.next++;
+                    deliver(ready);
+                }
+            }
+        }
+
+        /*
+        A failing consumer must not keep the slots, nor the results after it
+         */
+        private void deliver(final BatchResult result) {
+            try {
+                this.consumer.accept(result);
+            }
+            catch (final RuntimeException e) {
+                if(this.consumerError == null){
+                    this.consumerError = e;
+                }
+            }
+            finally {
+                this.window.release();
+            }
+        }
+    }
+}
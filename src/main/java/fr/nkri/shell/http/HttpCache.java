@@ -0,0 +1,302 @@
+package fr.nkri.shell.http;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory cache of GET responses, keyed by URL and request headers.
+ * Entries live for their Cache-Control max-age, or the default TTL, and the least recently
+ * used ones are evicted once the byte budget is exceeded. An expired entry carrying an ETag
+ * or a Last-Modified date is revalidated with a conditional request, a 304 keeping its body.
+ * Identical GETs sent while one is in flight share its future instead of hitting the network.
+ */
+public class HttpCache {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    /*
+    Fixed cost of an entry besides its strings
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    /*
+    Access ordered : the eldest entry is the least recently used
+     */
+    private final LinkedHashMap<String, Entry> entries;
+    private long bytes;
+
+    /*
+    Key -> request in flight, shared by concurrent identical GETs
+     */
+    private final ConcurrentMap<String, CompletableFuture<String>> pending;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder revalidated;
+    private final LongAdder coalesced;
+    private final LongAdder evictions;
+
+    /**
+     * Response cache
+     * @param maxBytes memory budget, estimated from the cached strings
+     * @param ttl lifetime of the responses without Cache-Control max-age
+     */
+    public HttpCache(final long maxBytes, final Duration ttl) {
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(64, 0.75f, true);
+        this.pending = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.revalidated = new LongAdder();
+        this.coalesced = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Body of a GET, from the cache when fresh, otherwise sent through the engine
+     * @param engine engine sending the request on a miss
+     * @param request GET request
+     * @return future of the body
+     */
+    public CompletableFuture<String> get(final HttpEngine engine, final HttpRequest request) {
+        final String key = key(request);
+        final Entry cached = lookup(key);
+
+        if(cached != null && cached.isFresh()){
+            this.hits.increment();
+            return CompletableFuture.completedFuture(cached.body);
+        }
+
+        /*
+        Join the identical request in flight, or become it
+         */
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        final CompletableFuture<String> running = this.pending.putIfAbsent(key, future);
+        if(running != null){
+            this.coalesced.increment();
+            return running;
+        }
+
+        engine.send(conditional(request, cached), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    this.pending.remove(key, future);
+                    if(error != null){
+                        future.completeExceptionally(error);
+                        return;
+                    }
+
+                    future.complete(handle(key, cached, response));
+                });
+
+        return future;
+    }
+
+    private String handle(final String key, final Entry cached, final HttpResponse<String> response) {
+        final HttpHeaders headers = response.headers();
+
+        if(response.statusCode() == 304 && cached != null){
+            this.revalidated.increment();
+            store(key, new Entry(cached.body, headers.firstValue("ETag").orElse(cached.etag),
+                    headers.firstValue("Last-Modified").orElse(cached.lastModified), expiry(headers)));
+            return cached.body;
+        }
+
+        this.misses.increment();
+        if(response.statusCode() == 200 && isStorable(headers)){
+            store(key, new Entry(response.body(), headers.firstValue("ETag").orElse(null),
+                    headers.firstValue("Last-Modified").orElse(null), expiry(headers)));
+        }
+        return response.body();
+    }
+
+    /*
+    Ask the server whether the expired copy is still valid
+     */
+    private static HttpRequest conditional(final HttpRequest request, final Entry cached) {
+        if(cached == null || (cached.etag == null && cached.lastModified == null)){
+            return request;
+        }
+
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(request, (name, value) -> true);
+        if(cached.etag != null){
+            builder.header("If-None-Match", cached.etag);
+        }
+        if(cached.lastModified != null){
+            builder.header("If-Modified-Since", cached.lastModified);
+        }
+        return builder.build();
+    }
+
+    private static boolean isStorable(final HttpHeaders headers) {
+        for(String value : headers.allValues("Cache-Control")){
+            if(value.contains("no-store") || value.contains("private")){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long expiry(final HttpHeaders headers) {
+        long ttl = this.ttlNanos;
+        for(String value : headers.allValues("Cache-Control")){
+            if(value.contains("no-cache")){
+                ttl = 0;
+                break;
+            }
+
+            final Matcher matcher = MAX_AGE.matcher(value);
+            if(matcher.find()){
+                ttl = Duration.ofSeconds(Long.parseLong(matcher.group(1))).toNanos();
+            }
+        }
+        return System.nanoTime() + ttl;
+    }
+
+    /*
+    URL plus every request header, sorted so their order does not matter
+     */
+    private static String key(final HttpRequest request) {
+        final StringBuilder key = new StringBuilder(request.uri().toString());
+        for(Map.Entry<String, List<String>> header : new TreeMap<>(request.headers().map()).entrySet()){
+            key.append('\n').append(header.getKey()).append(':').append(header.getValue());
+        }
+        return key.toString();
+    }
+
+    private synchronized Entry lookup(final String key) {
+        return this.entries.get(key);
+    }
+
+    private synchronized void store(final String key, final Entry entry) {
+        final long size = size(key, entry);
+        if(size > this.maxBytes){
+            return;
+        }
+
+        final Entry previous = this.entries.put(key, entry);
+        if(previous != null){
+            this.bytes -= size(key, previous);
+        }
+        this.bytes += size;
+
+        final Iterator<Map.Entry<String, Entry>> eldest = this.entries.entrySet().iterator();
+        while(this.bytes > this.maxBytes && eldest.hasNext()){
+            final Map.Entry<String, Entry> evicted = eldest.next();
+            this.bytes -= size(evicted.getKey(), evicted.getValue());
+            eldest.remove();
+            this.evictions.increment();
+        }
+    }
+
+    private static long size(final String key, final Entry entry) {
+        return ENTRY_OVERHEAD + 2L * (key.length() + entry.body.length());
+    }
+
+    /**
+     * Drop every cached response of an URL
+     * @param url URL, as requested
+     */
+    public synchronized void invalidate(final String url) {
+        final Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+        while(iterator.hasNext()){
+            final Map.Entry<String, Entry> entry = iterator.next();
+            if(entry.getKey().equals(url) || entry.getKey().startsWith(url + "\n")){
+                this.bytes -= size(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+        this.bytes = 0;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return expired entries confirmed by a 304, without downloading their body again
+     */
+    public long getRevalidated() {
+        return revalidated.sum();
+    }
+
+    /**
+     * @return requests that joined an identical request in flight
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return share of the requests answered without downloading a body, 0 if none
+     */
+    public double getHitRatio() {
+        final long saved = getHits() + getRevalidated() + getCoalesced();
+        final long total = saved + getMisses();
+        return total == 0 ? 0 : (double) saved / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d revalidated=%d coalesced=%d evictions=%d entries=%d bytes=%d (%.0f%% saved)",
+                getHits(), getMisses(), getRevalidated(), getCoalesced(), getEvictions(), size(), getBytes(), getHitRatio() * 100);
+    }
+
+    /*
+    Cached body and its validators
+     */
+    private static final class Entry {
+
+        private final String body;
+        private final String etag;
+        private final String lastModified;
+        private final long expiresAtNanos;
+
+        private Entry(final String body, final String etag, final String lastModified, final long expiresAtNanos) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isFresh() {
+            return System.nanoTime() - this.expiresAtNanos < 0;
+        }
+    }
+}
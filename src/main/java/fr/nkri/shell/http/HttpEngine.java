@@ -0,0 +1,225 @@
+package fr.nkri.shell.http;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared HTTP client with timeouts, HTTP/2, a virtual-thread executor
+ * and a cap on the requests in flight to each host.
+ * Connections are pooled by the underlying HttpClient, so one engine should be kept for the whole application.
+ */
+public class HttpEngine implements AutoCloseable {
+
+    private final HttpSettings settings;
+    private final HttpClient client;
+
+    /*
+    scheme://host:port -> limiter
+     */
+    private final ConcurrentMap<String, HostLimiter> limiters;
+
+    /*
+    Counters of every host
+     */
+    private final AtomicInteger inFlight;
+    private final AtomicInteger queued;
+    private final LongAdder completed;
+    private final LongAdder failed;
+
+    /**
+     * HTTP engine
+     * @param settings timeouts, version, executor and per host limit
+     */
+    public HttpEngine(final HttpSettings settings) {
+        this.settings = settings;
+        final HttpClient.Builder builder = HttpClient.newBuilder()
+                .connectTimeout(settings.getConnectTimeout())
+                .version(settings.getVersion())
+                .followRedirects(settings.getRedirect());
+        if(settings.isVirtualThreads()){
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+
+        this.client = builder.build();
+        this.limiters = new ConcurrentHashMap<>();
+        this.inFlight = new AtomicInteger();
+        this.queued = new AtomicInteger();
+        this.completed = new LongAdder();
+        this.failed = new LongAdder();
+    }
+
+    /**
+     * Request builder carrying the default request timeout
+     * @param url target URL
+     * @return builder to complete
+     */
+    public HttpRequest.Builder request(final String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(this.settings.getRequestTimeout());
+    }
+
+    /**
+     * Send a request once its host has a free slot.
+     * Cancelling the returned future takes a queued request out of its host queue,
+     * or cancels the exchange of a request already sent
+     * @param request request, the default timeout is applied if it has none
+     * @param handler body handler
+     * @return future of the response, completed exceptionally on error or timeout
+     */
+    public <T> CompletableFuture<HttpResponse<T>> send(final HttpRequest request, final HttpResponse.BodyHandler<T> handler) {
+        final HttpRequest timed = request.timeout().isPresent() ? request
+                : HttpRequest.newBuilder(request, (name, value) -> true).timeout(this.settings.getRequestTimeout()).build();
+
+        final HostLimiter limiter = limiter(timed.uri());
+        final CompletableFuture<Void> permit = limiter.acquire();
+        final CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+
+        /*
+        Queued until the host has a free slot
+         */
+        final boolean waiting = !permit.isDone();
+        if(waiting){
+            this.queued.incrementAndGet();
+            result.whenComplete((response, error) -> {
+                if(result.isCancelled()){
+                    limiter.cancel(permit);
+                }
+            });
+        }
+
+        permit.whenComplete((granted, refused) -> {
+            if(waiting){
+                this.queued.decrementAndGet();
+            }
+
+            /*
+            Cancelled while queued : the permit was never granted, or is given back unused
+             */
+            if(refused != null){
+                return;
+            }
+            if(result.isDone()){
+                limiter.release();
+                return;
+            }
+            this.inFlight.incrementAndGet();
+
+            final CompletableFuture<HttpResponse<T>> response;
+            try {
+                response = this.client.sendAsync(timed, handler);
+            }
+            catch (final RuntimeException e) {
+                done(limiter, false);
+                result.completeExceptionally(e);
+                return;
+            }
+
+            response.whenComplete((value, error) -> {
+                done(limiter, error == null);
+                if(error != null){
+                    result.completeExceptionally(error);
+                }
+                else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((value, error) -> {
+                if(result.isCancelled()){
+                    response.cancel(true);
+                }
+            });
+        });
+
+        return result;
+    }
+
+    private void done(final HostLimiter limiter, final boolean success) {
+        this.inFlight.decrementAndGet();
+        limiter.release();
+        if(success){
+            this.completed.increment();
+        }
+        else {
+            this.failed.increment();
+        }
+    }
+
+    private HostLimiter limiter(final URI uri) {
+        return this.limiters.computeIfAbsent(hostKey(uri), key -> new HostLimiter(this.settings.getMaxRequestsPerHost()));
+    }
+
+    /**
+     * @param uri request URI
+     * @return scheme://host:port of the URI, with the default port of the scheme when it has none
+     */
+    static String hostKey(final URI uri) {
+        final int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        return uri.getScheme() + "://" + uri.getHost() + ":" + port;
+    }
+
+    /**
+     * @return requests sent and waiting for their response
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return requests waiting for a free slot on their host
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @param host host name
+     * @return requests in flight to this host, on any port
+     */
+    public int getInFlight(final String host) {
+        int total = 0;
+        for(var entry : this.limiters.entrySet()){
+            if(host.equalsIgnoreCase(URI.create(entry.getKey()).getHost())){
+                total += entry.getValue().getInFlight();
+            }
+        }
+        return total;
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public HttpSettings getSettings() {
+        return settings;
+    }
+
+    public HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Stop accepting requests, those in flight still complete
+     */
+    @Override
+    public void close() {
+        this.client.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "in flight=" + getInFlight() + " queued=" + getQueued() + " completed=" + getCompleted() + " failed=" + getFailed();
+    }
+}
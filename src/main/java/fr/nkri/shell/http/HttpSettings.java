@@ -0,0 +1,101 @@
+package fr.nkri.shell.http;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Settings of an HttpEngine
+ */
+public class HttpSettings {
+
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Duration requestTimeout = Duration.ofSeconds(30);
+    private HttpClient.Version version = HttpClient.Version.HTTP_2;
+    private HttpClient.Redirect redirect = HttpClient.Redirect.NEVER;
+    private int maxRequestsPerHost = 64;
+    private boolean virtualThreads = true;
+
+    /**
+     * @param connectTimeout max time to open a connection
+     * @return these settings
+     */
+    public HttpSettings connectTimeout(final Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    /**
+     * Applied to the requests built without their own timeout
+     * @param requestTimeout max time to wait for the response headers
+     * @return these settings
+     */
+    public HttpSettings requestTimeout(final Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        return this;
+    }
+
+    /**
+     * @param version preferred version, HTTP/2 falls back to HTTP/1.1 if the server does not support it
+     * @return these settings
+     */
+    public HttpSettings version(final HttpClient.Version version) {
+        this.version = version;
+        return this;
+    }
+
+    /**
+     * Redirects are not followed by default, like the former bare HttpClient
+     * @param redirect redirect policy
+     * @return these settings
+     */
+    public HttpSettings redirect(final HttpClient.Redirect redirect) {
+        this.redirect = redirect;
+        return this;
+    }
+
+    /**
+     * Requests above this count wait in a queue, without holding a thread
+     * @param maxRequestsPerHost max requests in flight to one host
+     * @return these settings
+     */
+    public HttpSettings maxRequestsPerHost(final int maxRequestsPerHost) {
+        if(maxRequestsPerHost < 1){
+            throw new IllegalArgumentException("Max requests per host must be at least 1!");
+        }
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    /**
+     * @param virtualThreads true to run the client tasks on virtual threads, false for the default client pool
+     * @return these settings
+     */
+    public HttpSettings virtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public HttpClient.Version getVersion() {
+        return version;
+    }
+
+    public HttpClient.Redirect getRedirect() {
+        return redirect;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+}
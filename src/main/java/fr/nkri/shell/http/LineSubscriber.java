@@ -0,0 +1,123 @@
+package fr.nkri.shell.http;
+
+import fr.nkri.shell.io.BrokenPipeException;
+import fr.nkri.shell.io.LineSink;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Hands the lines of a response body to a LineSink as they arrive.
+ * Lines are requested a batch at a time and only once the sink accepted the previous ones,
+ * so a slow sink, e.g. a pipe, holds the download back instead of piling lines up in memory.
+ * A sink that stops reading or an interrupted write cancels the download.
+ */
+public class LineSubscriber implements Flow.Subscriber<String> {
+
+    private static final int BATCH_SIZE = 256;
+
+    private final LineSink sink;
+
+    /*
+    Completed with the number of lines once the body ends or the sink stops reading,
+    the JDK line adapter never completes on cancel
+     */
+    private final CompletableFuture<Long> completion;
+
+    private Flow.Subscription subscription;
+    private int pending;
+    private long lines;
+
+    public LineSubscriber(final LineSink sink) {
+        this.sink = sink;
+        this.completion = new CompletableFuture<>();
+    }
+
+    /**
+     * Body subscriber decoding the bytes into lines for this subscriber
+     * @param charset body charset
+     * @return body subscriber, its body is the number of lines written
+     */
+    public HttpResponse.BodySubscriber<Long> asBodySubscriber(final Charset charset) {
+        final HttpResponse.BodySubscriber<Void> lineAdapter = HttpResponse.BodySubscribers.fromLineSubscriber(this, subscriber -> null, charset, null);
+
+        return new HttpResponse.BodySubscriber<>() {
+            @Override
+            public CompletionStage<Long> getBody() {
+                return completion;
+            }
+
+            @Override
+            public void onSubscribe(final Flow.Subscription upstream) {
+                lineAdapter.onSubscribe(upstream);
+            }
+
+            @Override
+            public void onNext(final List<ByteBuffer> buffers) {
+                lineAdapter.onNext(buffers);
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                lineAdapter.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                lineAdapter.onComplete();
+            }
+        };
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        this.subscription = subscription;
+        this.pending = BATCH_SIZE;
+        subscription.request(BATCH_SIZE);
+    }
+
+    @Override
+    public void onNext(final String line) {
+        try {
+            this.sink.write(line);
+            this.lines++;
+        }
+        catch (final BrokenPipeException e) {
+            stop();
+            return;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+            return;
+        }
+
+        /*
+        Ask for the next batch once half of the current one is written
+         */
+        if(--this.pending == BATCH_SIZE / 2){
+            this.pending += BATCH_SIZE;
+            this.subscription.request(BATCH_SIZE);
+        }
+    }
+
+    private void stop() {
+        this.subscription.cancel();
+        this.completion.complete(this.lines);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        this.completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        this.completion.complete(this.lines);
+    }
+}
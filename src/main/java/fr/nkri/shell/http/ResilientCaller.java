@@ -0,0 +1,329 @@
+package fr.nkri.shell.http;
+
+import fr.nkri.shell.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends requests under a CallPolicy : a deadline for the whole call,
+ * retries with jittered exponential backoff and hedging after the usual latency of the host.
+ * Retries and hedges share a RetryBudget, so a failing backend does not get more load than it already has.
+ * The latency of each host is learnt from the responses, to know when a request is late enough to hedge.
+ * Once a call completes, by a response, its deadline or a cancel, the requests it still has in flight are cancelled.
+ */
+public class ResilientCaller {
+
+    /*
+    Responses needed before the latency percentile of a host replaces the fallback hedge delay
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    private final RetryBudget budget;
+
+    /*
+    scheme://host:port -> response latencies
+     */
+    private final ConcurrentMap<String, LatencyHistogram> latencies;
+
+    private final LongAdder calls;
+    private final LongAdder retries;
+    private final LongAdder hedges;
+    private final LongAdder hedgesWon;
+    private final LongAdder budgetExhausted;
+    private final LongAdder deadlinesExceeded;
+
+    /**
+     * Resilient caller
+     * @param budget budget of the retries and hedges of every call
+     */
+    public ResilientCaller(final RetryBudget budget) {
+        this.budget = budget;
+        this.latencies = new ConcurrentHashMap<>();
+        this.calls = new LongAdder();
+        this.retries = new LongAdder();
+        this.hedges = new LongAdder();
+        this.hedgesWon = new LongAdder();
+        this.budgetExhausted = new LongAdder();
+        this.deadlinesExceeded = new LongAdder();
+    }
+
+    /**
+     * Send a request under a policy.
+     * The response is the first one that is neither an error nor a retried status.
+     * Once the retries are over, the last response is returned even if its status was retried.
+     * @param engine engine sending each attempt
+     * @param request request, sent again as is by retries and hedges
+     * @param handler body handler
+     * @param policy deadline, retries and hedging
+     * @return future of the response, completed exceptionally with an HttpTimeoutException past the deadline
+     */
+    public <T> CompletableFuture<HttpResponse<T>> send(final HttpEngine engine, final HttpRequest request,
+                                                      final HttpResponse.BodyHandler<T> handler, final CallPolicy policy) {
+        this.calls.increment();
+        this.budget.deposit();
+
+        final Call<T> call = new Call<>(engine, request, handler, policy);
+        if(policy.getDeadline() != null){
+            CompletableFuture.delayedExecutor(policy.getDeadline().toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if(call.result.completeExceptionally(new HttpTimeoutException("Deadline of " + policy.getDeadline().toMillis() + "ms exceeded"))){
+                    this.deadlinesExceeded.increment();
+                }
+            });
+        }
+
+        call.attempt(0);
+        return call.result;
+    }
+
+    private static Throwable unwrap(final Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * @param host scheme://host:port of the requests, with the default port of the scheme when the URL has none
+     * @return latencies of the responses of this host, null if it has none
+     */
+    public LatencyHistogram getLatencies(final String host) {
+        return latencies.get(host);
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return hedges whose response came before the one of the request they duplicate
+     */
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    /**
+     * @return retries and hedges not sent because the budget was spent
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.sum();
+    }
+
+    public long getDeadlinesExceeded() {
+        return deadlinesExceeded.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "calls=" + getCalls() + " retries=" + getRetries() + " hedges=" + getHedges() + " (won " + getHedgesWon() + ")"
+                + " budget exhausted=" + getBudgetExhausted() + " deadlines exceeded=" + getDeadlinesExceeded()
+                + " budget=" + this.budget.getAvailable();
+    }
+
+    /*
+    State of one call across its attempts
+     */
+    private final class Call<T> {
+
+        private final HttpEngine engine;
+        private final HttpRequest request;
+        private final HttpResponse.BodyHandler<T> handler;
+        private final CallPolicy policy;
+        private final long deadline;
+        private final LatencyHistogram hostLatencies;
+        private final CompletableFuture<HttpResponse<T>> result;
+
+        /*
+        Requests sent and not answered yet, the losers of a hedge race included
+         */
+        private final Set<CompletableFuture<HttpResponse<T>>> sending;
+
+        private Call(final HttpEngine engine, final HttpRequest request,
+                     final HttpResponse.BodyHandler<T> handler, final CallPolicy policy) {
+            this.engine = engine;
+            this.request = request;
+            this.handler = handler;
+            this.policy = policy;
+            this.deadline = policy.getDeadline() != null ? System.nanoTime() + policy.getDeadline().toNanos() : Long.MAX_VALUE;
+            this.hostLatencies = latencies.computeIfAbsent(HttpEngine.hostKey(request.uri()), key -> new LatencyHistogram());
+            this.result = new CompletableFuture<>();
+            this.sending = ConcurrentHashMap.newKeySet();
+            this.result.whenComplete((response, error) -> cancelSending());
+        }
+
+        private void attempt(final int attempt) {
+            if(this.result.isDone()){
+                return;
+            }
+
+            hedged().whenComplete((response, error) -> {
+                if(this.result.isDone()){
+                    return;
+                }
+                if(!isRetried(response, error) || attempt >= this.policy.getMaxRetries()){
+                    complete(response, error);
+                    return;
+                }
+
+                /*
+                Full jitter : a random wait up to the exponential backoff, so failed calls do not retry in waves
+                 */
+                final long cap = Math.min(this.policy.getMaxBackoff().toNanos(), this.policy.getBackoff().toNanos() << Math.min(attempt, 30));
+                final long backoff = ThreadLocalRandom.current().nextLong(cap + 1);
+                if(System.nanoTime() + backoff >= this.deadline){
+                    complete(response, error);
+                    return;
+                }
+                if(!budget.tryAcquire()){
+                    budgetExhausted.increment();
+                    complete(response, error);
+                    return;
+                }
+
+                retries.increment();
+                CompletableFuture.delayedExecutor(backoff, TimeUnit.NANOSECONDS).execute(() -> attempt(attempt + 1));
+            });
+        }
+
+        /*
+        Send the request, and a duplicate if it is late, completing with the first usable response
+         */
+        private CompletableFuture<HttpResponse<T>> hedged() {
+            final CompletableFuture<HttpResponse<T>> primary = sendOnce();
+            if(!this.policy.isHedging()){
+                return primary;
+            }
+
+            final long delay = hedgeDelay();
+            if(System.nanoTime() + delay >= this.deadline){
+                return primary;
+            }
+
+            final CompletableFuture<HttpResponse<T>> first = new CompletableFuture<>();
+            final AtomicInteger pending = new AtomicInteger(1);
+            primary.whenComplete((response, error) -> race(first, pending, response, error, false));
+
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+                if(first.isDone() || this.result.isDone()){
+                    return;
+                }
+                if(!budget.tryAcquire()){
+                    budgetExhausted.increment();
+                    return;
+                }
+
+                hedges.increment();
+                pending.incrementAndGet();
+                sendOnce().whenComplete((response, error) -> race(first, pending, response, error, true));
+            });
+            return first;
+        }
+
+        /*
+        A usable response wins at once and cancels the other request, otherwise the last one to complete is kept
+         */
+        private void race(final CompletableFuture<HttpResponse<T>> first, final AtomicInteger pending,
+                          final HttpResponse<T> response, final Throwable error, final boolean hedge) {
+            final boolean last = pending.decrementAndGet() == 0;
+            if(!isRetried(response, error)){
+                final boolean won = error != null ? first.completeExceptionally(error) : first.complete(response);
+                if(won){
+                    cancelSending();
+                    if(hedge && error == null){
+                        hedgesWon.increment();
+                    }
+                }
+            }
+            else if(last){
+                if(error != null){
+                    first.completeExceptionally(error);
+                }
+                else {
+                    first.complete(response);
+                }
+            }
+        }
+
+        /*
+        One attempt, its timeout cut to what is left of the deadline
+         */
+        private CompletableFuture<HttpResponse<T>> sendOnce() {
+            HttpRequest attempt = this.request;
+            if(this.deadline != Long.MAX_VALUE){
+                final Duration left = Duration.ofNanos(Math.max(1, this.deadline - System.nanoTime()));
+                final Duration timeout = this.request.timeout().orElse(this.engine.getSettings().getRequestTimeout());
+                attempt = HttpRequest.newBuilder(this.request, (name, value) -> true)
+                        .timeout(left.compareTo(timeout) < 0 ? left : timeout)
+                        .build();
+            }
+
+            final long sent = System.nanoTime();
+            final CompletableFuture<HttpResponse<T>> future = this.engine.send(attempt, this.handler);
+            this.sending.add(future);
+            if(this.result.isDone()){
+                future.cancel(true);
+            }
+
+            return future.whenComplete((response, error) -> {
+                this.sending.remove(future);
+                if(response != null){
+                    this.hostLatencies.record(System.nanoTime() - sent);
+                }
+            });
+        }
+
+        /*
+        Cancel the requests still waiting for their response, the engine takes them out of the host queue
+        or cancels their exchange
+         */
+        private void cancelSending() {
+            for(CompletableFuture<HttpResponse<T>> future : this.sending){
+                future.cancel(true);
+            }
+        }
+
+        private long hedgeDelay() {
+            if(this.hostLatencies.getCount() < MIN_SAMPLES){
+                return this.policy.getHedgeDelay().toNanos();
+            }
+            return this.hostLatencies.getPercentile(this.policy.getHedgePercentile());
+        }
+
+        private boolean isRetried(final HttpResponse<T> response, final Throwable error) {
+            if(error != null){
+                return unwrap(error) instanceof IOException;
+            }
+            return this.policy.getRetryStatuses().contains(response.statusCode());
+        }
+
+        private void complete(final HttpResponse<T> response, final Throwable error) {
+            if(error != null){
+                this.result.completeExceptionally(unwrap(error));
+            }
+            else {
+                this.result.complete(response);
+            }
+        }
+    }
+}
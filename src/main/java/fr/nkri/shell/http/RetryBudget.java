@@ -0,0 +1,61 @@
+package fr.nkri.shell.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the extra requests (retries and hedges) to a share of the regular ones.
+ * Every call deposits a fraction of a token, every extra request takes a whole one.
+ * When a backend goes down, retries stop once the budget is spent instead of multiplying its load.
+ */
+public class RetryBudget {
+
+    /*
+    Tokens are counted in thousandths
+     */
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+
+    /**
+     * Retry budget, starting full
+     * @param ratio extra requests allowed per call, e.g. 0.1 for 10%
+     * @param maxTokens max extra requests in a burst
+     */
+    public RetryBudget(final double ratio, final int maxTokens) {
+        this.deposit = Math.round(ratio * SCALE);
+        this.maxTokens = maxTokens * SCALE;
+        this.tokens = new AtomicLong(this.maxTokens);
+    }
+
+    /**
+     * Record a call
+     */
+    public void deposit() {
+        this.tokens.accumulateAndGet(this.deposit, (current, added) -> Math.min(this.maxTokens, current + added));
+    }
+
+    /**
+     * Take a token for a retry or a hedge
+     * @return false if the budget is spent
+     */
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = this.tokens.get();
+            if(current < SCALE){
+                return false;
+            }
+        }
+        while(!this.tokens.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    /**
+     * @return whole tokens left
+     */
+    public long getAvailable() {
+        return tokens.get() / SCALE;
+    }
+}
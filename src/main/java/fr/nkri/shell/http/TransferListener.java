@@ -0,0 +1,39 @@
+package fr.nkri.shell.http;
+
+import fr.nkri.shell.utils.ProgressBar;
+
+/**
+ * Progress of a download or an upload
+ */
+@FunctionalInterface
+public interface TransferListener {
+
+    /**
+     * Called as bytes go through, from the HTTP client threads
+     * @param transferred bytes transferred so far
+     * @param total expected bytes, from Content-Length, -1 if unknown
+     */
+    void onProgress(final long transferred, final long total);
+
+    /**
+     * Listener moving a progress bar.
+     * A bar drawn by a timer only gets its value set, otherwise it is redrawn when it gains a step.
+     * @param bar progress bar to drive, its max stands for the whole body
+     * @return listener, doing nothing while the total is unknown
+     */
+    static TransferListener of(final ProgressBar bar) {
+        return (transferred, total) -> {
+            if(total <= 0){
+                return;
+            }
+
+            final long value = (long) (Math.min(transferred, total) / (double) total * bar.getMax());
+            if(bar.isAutoRendered()){
+                bar.set(value);
+            }
+            else {
+                bar.update((int) value);
+            }
+        };
+    }
+}
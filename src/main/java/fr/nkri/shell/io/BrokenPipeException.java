@@ -0,0 +1,17 @@
+package fr.nkri.shell.io;
+
+import java.io.Serial;
+
+/**
+ * Thrown when writing to a pipe whose reader has stopped.
+ * A pipeline stage getting it simply ends: its output is no longer needed.
+ */
+public class BrokenPipeException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public BrokenPipeException() {
+        super("Broken pipe", null, false, false);
+    }
+}
@@ -0,0 +1,105 @@
+package fr.nkri.shell.io;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded line channel between two pipeline stages.
+ * Lines travel in chunks to keep the hand-off cost low, and the writer
+ * blocks once the queue is full, so a fast producer cannot outrun a slow consumer.
+ */
+public class LinePipe implements LineSource, LineSink {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /*
+    End of stream marker
+     */
+    private static final String[] EOF = new String[0];
+
+    private final BlockingQueue<String[]> queue;
+    private final int chunkSize;
+
+    /*
+    Writer side
+     */
+    private String[] writeChunk;
+    private int writeCount;
+
+    /*
+    Reader side
+     */
+    private String[] readChunk;
+    private int readIndex;
+
+    private volatile boolean readerClosed;
+
+    public LinePipe() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Line pipe
+     * @param chunkSize lines per chunk
+     * @param capacity max chunks waiting to be read
+     */
+    public LinePipe(final int chunkSize, final int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.chunkSize = chunkSize;
+        this.writeChunk = new String[chunkSize];
+    }
+
+    @Override
+    public void write(final String line) throws InterruptedException {
+        if(this.readerClosed){
+            throw new BrokenPipeException();
+        }
+
+        this.writeChunk[this.writeCount++] = line;
+        if(this.writeCount == this.chunkSize){
+            this.queue.put(this.writeChunk);
+            this.writeChunk = new String[this.chunkSize];
+            this.writeCount = 0;
+        }
+    }
+
+    /**
+     * Writer side: send the pending lines and the end of stream
+     * @throws InterruptedException if the pipeline is cancelled
+     */
+    public void close() throws InterruptedException {
+        if(this.writeCount > 0 && !this.readerClosed){
+            final String[] last = new String[this.writeCount];
+            System.arraycopy(this.writeChunk, 0, last, 0, this.writeCount);
+            this.queue.put(last);
+        }
+
+        this.writeCount = 0;
+        if(!this.readerClosed){
+            this.queue.put(EOF);
+        }
+    }
+
+    @Override
+    public String next() throws InterruptedException {
+        while(this.readChunk == null || this.readIndex >= this.readChunk.length){
+            if(this.readChunk == EOF){
+                return null;
+            }
+
+            this.readChunk = this.queue.take();
+            this.readIndex = 0;
+        }
+
+        return this.readChunk[this.readIndex++];
+    }
+
+    /**
+     * Reader side: stop reading, the writer gets a BrokenPipeException on its next line
+     */
+    public void closeReader() {
+        this.readerClosed = true;
+        this.queue.clear();
+    }
+}
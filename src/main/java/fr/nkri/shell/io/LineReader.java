@@ -0,0 +1,389 @@
+package fr.nkri.shell.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Line reader over a stream or a channel, decoding bytes through large reusable buffers.
+ * Lines end with \n or \r\n, no tokenizing nor regex is involved.
+ * The reader of the standard input is shared (see stdin()), so the shell loop and the prompts
+ * of its commands read from the same buffer and no typed or piped line is lost between them.
+ * A read can wait for a limited time : a line arriving after the timeout is kept for the next read.
+ * A thread can be bound to its own reader (see bind()), e.g. the socket of a remote session.
+ */
+public class LineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static LineReader stdin;
+
+    /*
+    Reader overriding the standard input for the current thread
+     */
+    private static final ThreadLocal<LineReader> threadReader = new ThreadLocal<>();
+
+    /*
+    Source : a stream or a channel
+     */
+    private final InputStream in;
+    private final ReadableByteChannel channel;
+
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes;
+
+    /*
+    Decoded chars, in read mode
+     */
+    private final CharBuffer chars;
+    private final StringBuilder line;
+    private boolean eof;
+    private boolean ended;
+
+    /*
+    Guards the buffers and the pending read. Not a monitor : a virtual thread blocked
+    reading a socket under it would stay pinned to its carrier thread
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /*
+    Line being read in the background by a read with timeout, taken by the next read
+     */
+    private CompletableFuture<String> pending;
+
+    /**
+     * Line reader over a stream
+     * @param in stream to read, e.g. System.in or a socket stream
+     * @param charset charset of the bytes
+     */
+    public LineReader(final InputStream in, final Charset charset) {
+        this(in, null, charset, BUFFER_SIZE);
+    }
+
+    /**
+     * Line reader over a blocking channel
+     * @param channel channel to read, e.g. a FileChannel or a SocketChannel
+     * @param charset charset of the bytes
+     */
+    public LineReader(final ReadableByteChannel channel, final Charset charset) {
+        this(null, channel, charset, BUFFER_SIZE);
+    }
+
+    /**
+     * Line reader over a blocking channel with small buffers, e.g. for many mostly idle connections
+     * @param channel channel to read
+     * @param charset charset of the bytes
+     * @param bufferSize size of the byte and char buffers, longer lines still work
+     */
+    public LineReader(final ReadableByteChannel channel, final Charset charset, final int bufferSize) {
+        this(null, channel, charset, bufferSize);
+    }
+
+    private LineReader(final InputStream in, final ReadableByteChannel channel, final Charset charset, final int bufferSize) {
+        this.in = in;
+        this.channel = channel;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate(bufferSize);
+        this.chars = CharBuffer.allocate(bufferSize).flip();
+        this.line = new StringBuilder(256);
+    }
+
+    /**
+     * @return reader of System.in shared by the whole application
+     */
+    public static synchronized LineReader stdin() {
+        if(stdin == null){
+            final String encoding = System.getProperty("stdin.encoding");
+            Charset charset = Charset.defaultCharset();
+            if(encoding != null && Charset.isSupported(encoding)){
+                charset = Charset.forName(encoding);
+            }
+            stdin = new LineReader(System.in, charset);
+        }
+        return stdin;
+    }
+
+    /**
+     * @return reader of the current thread, the standard input one if not bound
+     */
+    public static LineReader current() {
+        final LineReader local = threadReader.get();
+        return local != null ? local : stdin();
+    }
+
+    /**
+     * Read the input of the current thread from its own reader
+     * @param reader reader of this thread, null to go back to the standard input
+     */
+    public static void bind(final LineReader reader) {
+        if(reader == null){
+            threadReader.remove();
+        }
+        else {
+            threadReader.set(reader);
+        }
+    }
+
+    /**
+     * Wait for the next line
+     * @return next line without its line break, null at the end of the input
+     */
+    public String readLine() throws IOException {
+        while(true){
+            final CompletableFuture<String> future;
+            this.lock.lock();
+            try {
+                if(this.pending == null){
+                    return read();
+                }
+                future = this.pending;
+            }
+            finally {
+                this.lock.unlock();
+            }
+
+            try {
+                final String result = take(future, future.join());
+                if(result != null || future.join() == null){
+                    return result;
+                }
+            }
+            catch (final RuntimeException e) {
+                this.lock.lock();
+                try {
+                    if(this.pending == future){
+                        this.pending = null;
+                    }
+                }
+                finally {
+                    this.lock.unlock();
+                }
+                throw unwrap(e.getCause() != null ? e.getCause() : e);
+            }
+        }
+    }
+
+    /**
+     * Wait for the next line for a limited time.
+     * On timeout the read goes on in the background, its line is returned by the next read.
+     * @param timeout max wait
+     * @return next line without its line break, null at the end of the input
+     * @throws TimeoutException if no full line arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public String readLine(final Duration timeout) throws IOException, InterruptedException, TimeoutException {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        while(true){
+            final CompletableFuture<String> future;
+            this.lock.lock();
+            try {
+                if(this.pending == null){
+                    /*
+                    A full line already decoded needs no background read
+                     */
+                    final String buffered = pollBuffered();
+                    if(buffered != null){
+                        return buffered;
+                    }
+
+                    this.pending = new CompletableFuture<>();
+                    final CompletableFuture<String> reading = this.pending;
+                    Thread.ofPlatform().daemon().name("line-reader").start(() -> {
+                        try {
+                            reading.complete(read());
+                        }
+                        catch (final IOException | RuntimeException e) {
+                            reading.completeExceptionally(e);
+                        }
+                    });
+                }
+                future = this.pending;
+            }
+            finally {
+                this.lock.unlock();
+            }
+
+            final String result;
+            try {
+                result = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            catch (final ExecutionException e) {
+                this.lock.lock();
+                try {
+                    if(this.pending == future){
+                        this.pending = null;
+                    }
+                }
+                finally {
+                    this.lock.unlock();
+                }
+                throw unwrap(e.getCause());
+            }
+
+            final String taken = take(future, result);
+            if(taken != null || result == null){
+                return taken;
+            }
+        }
+    }
+
+    /*
+    Claim the line of a background read, null if another reader took it first
+     */
+    private String take(final CompletableFuture<String> future, final String result) {
+        this.lock.lock();
+        try {
+            if(this.pending != future){
+                return null;
+            }
+            this.pending = null;
+            return result;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private static IOException unwrap(final Throwable error) {
+        if(error instanceof IOException ioException){
+            return ioException;
+        }
+        if(error instanceof RuntimeException runtimeException){
+            throw runtimeException;
+        }
+        return new IOException(error);
+    }
+
+    /*
+    Line already complete in the decoded chars, without reading
+     */
+    private String pollBuffered() throws IOException {
+        final char[] array = this.chars.array();
+        final int start = this.chars.position();
+        for(int i = start; i < this.chars.limit(); i++){
+            if(array[i] == '\n'){
+                return read();
+            }
+        }
+        return null;
+    }
+
+    /*
+    Read up to the next line break, refilling the chars as needed
+     */
+    private String read() throws IOException {
+        this.line.setLength(0);
+        boolean any = false;
+
+        while(true){
+            final char[] array = this.chars.array();
+            final int start = this.chars.position();
+            final int limit = this.chars.limit();
+
+            int i = start;
+            while(i < limit && array[i] != '\n'){
+                i++;
+            }
+
+            if(i < limit){
+                this.chars.position(i + 1);
+                int end = i;
+                if(this.line.length() == 0){
+                    if(end > start && array[end - 1] == '\r'){
+                        end--;
+                    }
+                    return new String(array, start, end - start);
+                }
+
+                this.line.append(array, start, end - start);
+                final int length = this.line.length();
+                if(length > 0 && this.line.charAt(length - 1) == '\r'){
+                    this.line.setLength(length - 1);
+                }
+                return this.line.toString();
+            }
+
+            if(limit > start){
+                this.line.append(array, start, limit - start);
+                any = true;
+            }
+            this.chars.position(limit);
+
+            if(!fill()){
+                return any ? this.line.toString() : null;
+            }
+        }
+    }
+
+    /*
+    Decode more chars, reading the source when the bytes left are not enough
+     */
+    private boolean fill() throws IOException {
+        if(this.ended){
+            return false;
+        }
+
+        this.chars.clear();
+        while(true){
+            this.bytes.flip();
+            this.decoder.decode(this.bytes, this.chars, this.eof);
+            this.bytes.compact();
+
+            if(this.eof){
+                this.decoder.flush(this.chars);
+                this.ended = true;
+                this.chars.flip();
+                return this.chars.hasRemaining();
+            }
+            if(this.chars.position() > 0){
+                this.chars.flip();
+                return true;
+            }
+
+            final int read;
+            if(this.channel != null){
+                read = this.channel.read(this.bytes);
+            }
+            else {
+                read = this.in.read(this.bytes.array(), this.bytes.arrayOffset() + this.bytes.position(), this.bytes.remaining());
+                if(read > 0){
+                    this.bytes.position(this.bytes.position() + read);
+                }
+            }
+
+            if(read < 0){
+                this.eof = true;
+            }
+        }
+    }
+
+    /**
+     * Close the source, the standard input reader is never closed
+     */
+    @Override
+    public void close() throws IOException {
+        if(this == stdin){
+            return;
+        }
+        if(this.channel != null){
+            this.channel.close();
+        }
+        else {
+            this.in.close();
+        }
+    }
+}
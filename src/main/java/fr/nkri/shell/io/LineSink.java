@@ -0,0 +1,15 @@
+package fr.nkri.shell.io;
+
+/**
+ * Lines written by a streaming command, e.g. to the next pipeline stage
+ */
+public interface LineSink {
+
+    /**
+     * Write one line, waiting if the reader is behind
+     * @param line line without line break
+     * @throws InterruptedException if the pipeline is cancelled
+     * @throws BrokenPipeException if nobody reads anymore
+     */
+    void write(final String line) throws InterruptedException;
+}
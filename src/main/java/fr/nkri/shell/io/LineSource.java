@@ -0,0 +1,19 @@
+package fr.nkri.shell.io;
+
+/**
+ * Lines read by a streaming command, e.g. the output of the previous pipeline stage
+ */
+public interface LineSource {
+
+    /*
+    Source without any line
+     */
+    LineSource EMPTY = () -> null;
+
+    /**
+     * Wait for the next line
+     * @return next line, null once the source is exhausted
+     * @throws InterruptedException if the pipeline is cancelled
+     */
+    String next() throws InterruptedException;
+}
@@ -0,0 +1,81 @@
+package fr.nkri.shell.io;
+
+/**
+ * Output sink keeping everything in memory,
+ * to capture the output of a command or test it
+ */
+public class MemorySink implements OutputSink {
+
+    private static final String TRUNCATED = "\n[... output truncated ...]\n";
+
+    private final StringBuilder content;
+
+    /*
+    Max chars kept, the text printed past it is dropped
+     */
+    private final int maxChars;
+    private boolean truncated;
+
+    public MemorySink() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Memory sink keeping at most the given number of chars, e.g. for the output of a background job
+     * @param maxChars max chars kept until the next drain
+     */
+    public MemorySink(final int maxChars) {
+        this.content = new StringBuilder();
+        this.maxChars = maxChars;
+    }
+
+    @Override
+    public synchronized OutputSink print(final CharSequence text) {
+        final int room = this.maxChars - this.content.length();
+        if(text.length() <= room){
+            this.content.append(text);
+        }
+        else {
+            this.content.append(text, 0, Math.max(0, room));
+            this.truncated = true;
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized OutputSink print(final char c) {
+        if(this.content.length() < this.maxChars){
+            this.content.append(c);
+        }
+        else {
+            this.truncated = true;
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * @return everything printed so far
+     */
+    public synchronized String getContent() {
+        return this.truncated ? this.content + TRUNCATED : this.content.toString();
+    }
+
+    /**
+     * Return everything printed so far and clear it
+     * @return captured text
+     */
+    public synchronized String drain() {
+        final String text = getContent();
+        this.content.setLength(0);
+        this.truncated = false;
+        return text;
+    }
+
+    public synchronized int length() {
+        return this.content.length();
+    }
+}
@@ -0,0 +1,37 @@
+package fr.nkri.shell.io;
+
+/**
+ * Destination of everything the shell and the CLI utilities print.
+ * Implementations buffer the text and only write it out on flush.
+ */
+public interface OutputSink {
+
+    /*
+    Append text without line break
+     */
+    OutputSink print(final CharSequence text);
+
+    /*
+    Append a single character
+     */
+    OutputSink print(final char c);
+
+    /*
+    Append text followed by a line break
+     */
+    default OutputSink println(final CharSequence text) {
+        return print(text).print('\n');
+    }
+
+    /*
+    Append a line break
+     */
+    default OutputSink println() {
+        return print('\n');
+    }
+
+    /*
+    Write out the buffered text
+     */
+    void flush();
+}
@@ -0,0 +1,67 @@
+package fr.nkri.shell.io;
+
+/**
+ * Output sink turning the text printed by a regular command into lines of a pipe,
+ * so any command can feed a pipeline
+ */
+public class PipeOutputSink implements OutputSink {
+
+    private final LineSink target;
+    private final StringBuilder line;
+
+    /**
+     * Pipe output sink
+     * @param target pipe receiving the lines
+     */
+    public PipeOutputSink(final LineSink target) {
+        this.target = target;
+        this.line = new StringBuilder();
+    }
+
+    @Override
+    public OutputSink print(final CharSequence text) {
+        for(int i = 0; i < text.length(); i++){
+            print(text.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public OutputSink print(final char c) {
+        if(c == '\n'){
+            emit();
+        }
+        else if(c != '\r'){
+            this.line.append(c);
+        }
+        return this;
+    }
+
+    /**
+     * A partial line stays pending until its line break or the end of the command
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Send the last line if it has no line break
+     */
+    public void finish() {
+        if(this.line.length() > 0){
+            emit();
+        }
+    }
+
+    private void emit() {
+        final String text = this.line.toString();
+        this.line.setLength(0);
+        try {
+            this.target.write(text);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BrokenPipeException();
+        }
+    }
+}
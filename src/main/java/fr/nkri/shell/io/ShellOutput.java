@@ -0,0 +1,146 @@
+package fr.nkri.shell.io;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared output of the shell and the CLI utilities.
+ * Everything printed goes to one buffered sink, written out at explicit points:
+ * end of a command, before a prompt, on a progress tick, or when
+ * a standalone message is committed outside of any batch.
+ * A thread can be bound to its own sink, e.g. to capture the output of a background job.
+ */
+public class ShellOutput {
+
+    private static volatile OutputSink sink = new TerminalSink();
+
+    /*
+    Sink overriding the shared one for the current thread
+     */
+    private static final ThreadLocal<OutputSink> threadSink = new ThreadLocal<>();
+
+    /*
+    Nesting depth of the running batches, commit() does not flush inside one
+     */
+    private static final AtomicInteger batchDepth = new AtomicInteger();
+
+    /*
+    Batch depth of the threads counting their own batches, e.g. remote sessions
+     */
+    private static final ThreadLocal<int[]> threadBatchDepth = new ThreadLocal<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ShellOutput::flush, "shell-output-flush"));
+    }
+
+    /**
+     * @return output sink of the current thread, the shared one if not bound
+     */
+    public static OutputSink sink() {
+        final OutputSink local = threadSink.get();
+        return local != null ? local : sink;
+    }
+
+    /**
+     * Send the output of the current thread to its own sink
+     * @param localSink sink of this thread, null to go back to the shared one
+     */
+    public static void bind(final OutputSink localSink) {
+        if(localSink == null){
+            threadSink.remove();
+            threadBatchDepth.remove();
+        }
+        else {
+            threadSink.set(localSink);
+        }
+    }
+
+    /**
+     * Send the output of the current thread to its own sink
+     * @param localSink sink of this thread, null to go back to the shared one
+     * @param ownBatches true if the batches of this thread don't delay the commits of the others, e.g. a remote session
+     */
+    public static void bind(final OutputSink localSink, final boolean ownBatches) {
+        bind(localSink);
+        if(localSink != null && ownBatches){
+            threadBatchDepth.set(new int[1]);
+        }
+        else {
+            threadBatchDepth.remove();
+        }
+    }
+
+    /**
+     * Replace the shared output sink, flushing the previous one
+     * @param newSink sink to use, e.g. a MemorySink or a TerminalSink without colors
+     */
+    public static void setSink(final OutputSink newSink) {
+        if(newSink == null){
+            throw new IllegalArgumentException("Output sink cannot be null!");
+        }
+
+        final OutputSink previous = sink;
+        sink = newSink;
+        previous.flush();
+    }
+
+    public static void print(final CharSequence text) {
+        sink().print(text);
+    }
+
+    public static void println(final CharSequence text) {
+        sink().println(text);
+    }
+
+    public static void println() {
+        sink().println();
+    }
+
+    /**
+     * Write out everything buffered
+     */
+    public static void flush() {
+        sink().flush();
+    }
+
+    /**
+     * End of a standalone message: flush unless a batch is running
+     */
+    public static void commit() {
+        final int[] own = threadBatchDepth.get();
+        if((own != null ? own[0] : batchDepth.get()) == 0){
+            flush();
+        }
+    }
+
+    /**
+     * Start a batch, e.g. a command, during which commit() does not flush
+     */
+    public static void beginBatch() {
+        final int[] own = threadBatchDepth.get();
+        if(own != null){
+            own[0]++;
+        }
+        else {
+            batchDepth.incrementAndGet();
+        }
+    }
+
+    /**
+     * End a batch, flushing when the outermost batch ends
+     */
+    public static void endBatch() {
+        final int[] own = threadBatchDepth.get();
+        if(own != null){
+            if(--own[0] <= 0){
+                own[0] = 0;
+                flush();
+            }
+            return;
+        }
+
+        if(batchDepth.decrementAndGet() <= 0){
+            batchDepth.set(0);
+            flush();
+        }
+    }
+}
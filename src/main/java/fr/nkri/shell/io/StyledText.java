@@ -0,0 +1,247 @@
+package fr.nkri.shell.io;
+
+import fr.nkri.shell.enums.MiniColor;
+
+/**
+ * Text with colors and styles, appended straight into a reusable buffer.
+ * Escape codes are only written when styled text is appended, and only those that change
+ * the current style : setting the same color twice, or switching back and forth without text
+ * in between, writes nothing. Without colors (see Terminal) no code is written at all.
+ *
+ * <pre>
+ * StyledText.local().append("[WARN] ", MiniColor.YELLOW).append(message).println();
+ * </pre>
+ */
+public class StyledText implements CharSequence {
+
+    private static final ThreadLocal<StyledText> LOCAL = ThreadLocal.withInitial(StyledText::new);
+
+    private static final int BOLD = 1;
+    private static final int ITALIC = 1 << 1;
+    private static final int UNDERLINE = 1 << 2;
+    private static final int STRIKETHROUGH = 1 << 3;
+
+    private final StringBuilder buffer;
+    private boolean colors;
+
+    /*
+    Style of the next appended text, and style already written in the buffer
+     */
+    private MiniColor color;
+    private int styles;
+    private MiniColor writtenColor;
+    private int writtenStyles;
+
+    /**
+     * Styled text, with colors if the terminal has them
+     */
+    public StyledText() {
+        this(Terminal.hasColors());
+    }
+
+    /**
+     * Styled text
+     * @param colors false to write the text only
+     */
+    public StyledText(final boolean colors) {
+        this.buffer = new StringBuilder(128);
+        this.colors = colors;
+    }
+
+    /**
+     * Styled text of the current thread, cleared, to build a line without allocating
+     * @return reusable styled text, not to be kept
+     */
+    public static StyledText local() {
+        final StyledText text = LOCAL.get();
+        text.colors = Terminal.hasColors();
+        return text.clear();
+    }
+
+    /**
+     * Style of the text appended next
+     * @param style color, replacing the current one, or style (bold...) added to the current ones. RESET goes back to plain text.
+     * @return this text
+     */
+    public StyledText style(final MiniColor style) {
+        final int bit = bit(style);
+        if(style == MiniColor.RESET){
+            plain();
+        }
+        else if(bit != 0){
+            this.styles |= bit;
+        }
+        else {
+            this.color = style;
+        }
+        return this;
+    }
+
+    /**
+     * Plain text from now on
+     * @return this text
+     */
+    public StyledText plain() {
+        this.color = null;
+        this.styles = 0;
+        return this;
+    }
+
+    public StyledText append(final CharSequence text) {
+        write();
+        this.buffer.append(text);
+        return this;
+    }
+
+    public StyledText append(final char c) {
+        write();
+        this.buffer.append(c);
+        return this;
+    }
+
+    public StyledText append(final long number) {
+        write();
+        this.buffer.append(number);
+        return this;
+    }
+
+    /**
+     * Append text with a style, then go back to the previous style
+     * @param text text to append
+     * @param style color or style of this text
+     * @return this text
+     */
+    public StyledText append(final CharSequence text, final MiniColor style) {
+        final MiniColor previousColor = this.color;
+        final int previousStyles = this.styles;
+        style(style).append(text);
+        this.color = previousColor;
+        this.styles = previousStyles;
+        return this;
+    }
+
+    /**
+     * Close the styles written so far, the terminal goes back to plain text
+     * @return this text
+     */
+    public StyledText end() {
+        plain();
+        write();
+        return this;
+    }
+
+    /**
+     * End the text and print it to the current output, without creating a String
+     */
+    public void print() {
+        end();
+        ShellOutput.print(this.buffer);
+    }
+
+    /**
+     * End the text and print it with a line break
+     */
+    public void println() {
+        end();
+        this.buffer.append('\n');
+        ShellOutput.print(this.buffer);
+    }
+
+    /**
+     * Empty the buffer, keeping its capacity
+     * @return this text
+     */
+    public StyledText clear() {
+        this.buffer.setLength(0);
+        this.color = null;
+        this.styles = 0;
+        this.writtenColor = null;
+        this.writtenStyles = 0;
+        return this;
+    }
+
+    /*
+    Write the codes going from the written style to the wanted one
+     */
+    private void write() {
+        if(!this.colors || (this.color == this.writtenColor && this.styles == this.writtenStyles)){
+            return;
+        }
+
+        /*
+        A color or a style cannot be switched off alone : reset, then set what is still wanted
+         */
+        if((this.writtenStyles & ~this.styles) != 0 || (this.writtenColor != null && this.color == null)){
+            this.buffer.append(MiniColor.RESET.getCode());
+            this.writtenColor = null;
+            this.writtenStyles = 0;
+        }
+
+        if(this.color != this.writtenColor){
+            this.buffer.append(this.color.getCode());
+        }
+
+        final int added = this.styles & ~this.writtenStyles;
+        if((added & BOLD) != 0){
+            this.buffer.append(MiniColor.BOLD.getCode());
+        }
+        if((added & ITALIC) != 0){
+            this.buffer.append(MiniColor.ITALIC.getCode());
+        }
+        if((added & UNDERLINE) != 0){
+            this.buffer.append(MiniColor.UNDERLINE.getCode());
+        }
+        if((added & STRIKETHROUGH) != 0){
+            this.buffer.append(MiniColor.STRIKETHROUGH.getCode());
+        }
+
+        this.writtenColor = this.color;
+        this.writtenStyles = this.styles;
+    }
+
+    private static int bit(final MiniColor style) {
+        switch(style){
+            case BOLD:
+                return BOLD;
+
+            case ITALIC:
+                return ITALIC;
+
+            case UNDERLINE:
+                return UNDERLINE;
+
+            case STRIKETHROUGH:
+                return STRIKETHROUGH;
+
+            default:
+                return 0;
+        }
+    }
+
+    public boolean hasColors() {
+        return colors;
+    }
+
+    @Override
+    public int length() {
+        return buffer.length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        return buffer.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return buffer.subSequence(start, end);
+    }
+
+    /**
+     * @return the text, its styles closed
+     */
+    @Override
+    public String toString() {
+        return end().buffer.toString();
+    }
+}
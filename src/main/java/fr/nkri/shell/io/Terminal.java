@@ -0,0 +1,90 @@
+package fr.nkri.shell.io;
+
+import java.io.Console;
+import java.lang.reflect.Method;
+
+/**
+ * Capabilities of the terminal, detected once at startup.
+ * Colors are enabled when the output is an interactive terminal, unless the NO_COLOR
+ * environment variable is set (https://no-color.org) or TERM is dumb. FORCE_COLOR enables them anyway.
+ * Output redirected to a file or a pipe is therefore written without escape codes.
+ */
+public final class Terminal {
+
+    private static final boolean TTY = detectTty();
+    private static volatile boolean colors = detectColors();
+
+    private Terminal() {
+    }
+
+    private static boolean detectTty() {
+        final Console console = System.console();
+        if(console == null){
+            return false;
+        }
+
+        /*
+        Since Java 22 a console may exist on redirected output, Console.isTerminal tells
+         */
+        try {
+            final Method isTerminal = Console.class.getMethod("isTerminal");
+            return (boolean) isTerminal.invoke(console);
+        }
+        catch (final ReflectiveOperationException e) {
+            return true;
+        }
+    }
+
+    private static boolean detectColors() {
+        final String noColor = System.getenv("NO_COLOR");
+        if(noColor != null && !noColor.isEmpty()){
+            return false;
+        }
+
+        final String forceColor = System.getenv("FORCE_COLOR");
+        if(forceColor != null && !forceColor.isEmpty() && !forceColor.equals("0")){
+            return true;
+        }
+
+        return TTY && !"dumb".equals(System.getenv("TERM"));
+    }
+
+    /**
+     * @return true if the standard output is an interactive terminal
+     */
+    public static boolean isTty() {
+        return TTY;
+    }
+
+    /**
+     * Colors of the current output sink when it is a TerminalSink, e.g. a remote session
+     * started with ServerOptions.colors(false), the detected ones otherwise
+     * @return true if colors and styles should be written
+     */
+    public static boolean hasColors() {
+        if(ShellOutput.sink() instanceof TerminalSink terminalSink){
+            return terminalSink.hasColors();
+        }
+        return colors;
+    }
+
+    /*
+    Detected or overridden colors, whatever the current sink: the default TerminalSink is built from them
+    while ShellOutput is being initialized
+     */
+    static boolean defaultColors() {
+        return colors;
+    }
+
+    /**
+     * Override the detection, e.g. from a --color / --no-color option.
+     * The current output sink follows if it is a TerminalSink.
+     * @param enabled true to write colors and styles
+     */
+    public static void setColors(final boolean enabled) {
+        colors = enabled;
+        if(ShellOutput.sink() instanceof TerminalSink terminalSink){
+            terminalSink.setColors(enabled);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package fr.nkri.shell.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Output sink writing to a byte stream, System.out by default.
+ * Text is appended to a reusable char buffer and encoded in one go on flush,
+ * so a command printing thousands of lines performs a handful of writes.
+ * The buffer is flushed on its own once it grows past the flush threshold.
+ */
+public class TerminalSink implements OutputSink {
+
+    private static final int DEFAULT_FLUSH_THRESHOLD = 1 << 14;
+
+    /*
+    Target stream, null to follow System.out
+     */
+    private final OutputStream target;
+    private final CharsetEncoder encoder;
+    private final int flushThreshold;
+    private volatile boolean colors;
+
+    /*
+    Guards the buffers. Not a monitor : a virtual thread writing to a slow socket
+    under it would stay pinned to its carrier thread
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /*
+    Reusable buffers
+     */
+    private final StringBuilder buffer;
+    private final StringBuilder plain;
+    private final ByteBuffer bytes;
+
+    /**
+     * Terminal sink on System.out with its charset, colors enabled if the terminal has them
+     */
+    public TerminalSink() {
+        this(null, System.out.charset(), Terminal.defaultColors());
+    }
+
+    /**
+     * Terminal sink
+     * @param target stream to write to, null to follow System.out
+     * @param charset output charset
+     * @param colors false to strip ANSI escape codes
+     */
+    public TerminalSink(final OutputStream target, final Charset charset, final boolean colors) {
+        this(target, charset, colors, DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    /**
+     * Terminal sink
+     * @param target stream to write to, null to follow System.out
+     * @param charset output charset
+     * @param colors false to strip ANSI escape codes
+     * @param flushThreshold buffered chars triggering an automatic flush
+     */
+    public TerminalSink(final OutputStream target, final Charset charset, final boolean colors, final int flushThreshold) {
+        this.target = target;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.colors = colors;
+        this.flushThreshold = flushThreshold;
+        this.buffer = new StringBuilder(flushThreshold + 256);
+        this.plain = new StringBuilder();
+        this.bytes = ByteBuffer.allocate(flushThreshold + 256);
+    }
+
+    @Override
+    public OutputSink print(final CharSequence text) {
+        this.lock.lock();
+        try {
+            this.buffer.append(text);
+            if(this.buffer.length() >= this.flushThreshold){
+                flush();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+        return this;
+    }
+
+    @Override
+    public OutputSink print(final char c) {
+        this.lock.lock();
+        try {
+            this.buffer.append(c);
+            if(this.buffer.length() >= this.flushThreshold){
+                flush();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        this.lock.lock();
+        try {
+            write();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void write() {
+        if(this.buffer.length() == 0){
+            return;
+        }
+
+        CharSequence text = this.buffer;
+        if(!this.colors && this.buffer.indexOf("\033") >= 0){
+            this.plain.setLength(0);
+            stripAnsi(this.buffer, this.plain);
+            text = this.plain;
+        }
+
+        final OutputStream out = this.target != null ? this.target : System.out;
+        try {
+            encode(CharBuffer.wrap(text), out);
+            out.flush();
+        }
+        catch (final IOException e) {
+            /*
+            Nothing sensible to report to: the terminal itself is gone
+             */
+        }
+        finally {
+            this.buffer.setLength(0);
+        }
+    }
+
+    public boolean hasColors() {
+        return colors;
+    }
+
+    /**
+     * Enable or disable ANSI escape codes in the output
+     * @param colors false to strip them
+     */
+    public void setColors(final boolean colors) {
+        this.colors = colors;
+    }
+
+    /*
+    Encode the whole text, writing the byte buffer each time it is full
+     */
+    private void encode(final CharBuffer chars, final OutputStream out) throws IOException {
+        this.encoder.reset();
+        while(this.encoder.encode(chars, this.bytes, true).isOverflow()){
+            writeBytes(out);
+        }
+        while(this.encoder.flush(this.bytes).isOverflow()){
+            writeBytes(out);
+        }
+
+        writeBytes(out);
+    }
+
+    private void writeBytes(final OutputStream out) throws IOException {
+        this.bytes.flip();
+        if(this.bytes.hasRemaining()){
+            out.write(this.bytes.array(), this.bytes.arrayOffset() + this.bytes.position(), this.bytes.remaining());
+        }
+        this.bytes.clear();
+    }
+
+    /**
+     * Copy text without its ANSI escape sequences (ESC [ ... final byte)
+     * @param text text to strip
+     * @param out destination
+     */
+    public static void stripAnsi(final CharSequence text, final StringBuilder out){
+        final int length = text.length();
+        int i = 0;
+
+        while(i < length){
+            final char c = text.charAt(i);
+            if(c == '\033' && i + 1 < length && text.charAt(i + 1) == '['){
+                i += 2;
+                while(i < length && (text.charAt(i) < '@' || text.charAt(i) > '~')){
+                    i++;
+                }
+                i++;
+                continue;
+            }
+
+            out.append(c);
+            i++;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package fr.nkri.shell.jobs;
+
+import fr.nkri.shell.enums.JobState;
+import fr.nkri.shell.io.MemorySink;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A command running in the background on its own virtual thread
+ */
+public class Job {
+
+    /*
+    Captured output kept until it is read, about 2 MB
+     */
+    public static final int MAX_OUTPUT_CHARS = 1 << 20;
+
+    private final int id;
+    private final String commandLine;
+
+    /*
+    Captured output, null if the job prints straight to the shell output
+     */
+    private final MemorySink output;
+    private final CompletableFuture<JobState> completion;
+    private final long startNanos;
+
+    private volatile JobState state;
+    private volatile Thread thread;
+    private volatile Throwable error;
+    private volatile long endNanos;
+    private volatile boolean reported;
+
+    /**
+     * Background job
+     * @param id job number shown to the user
+     * @param commandLine command line that started the job
+     * @param captureOutput true to keep the output until it is asked for
+     */
+    Job(final int id, final String commandLine, final boolean captureOutput) {
+        this.id = id;
+        this.commandLine = commandLine;
+        this.output = captureOutput ? new MemorySink(MAX_OUTPUT_CHARS) : null;
+        this.completion = new CompletableFuture<>();
+        this.startNanos = System.nanoTime();
+        this.state = JobState.RUNNING;
+    }
+
+    void start(final Thread thread) {
+        this.thread = thread;
+        thread.start();
+    }
+
+    /*
+    Only the first final state is kept: a killed job stays killed
+     */
+    void finish(final JobState finalState, final Throwable cause) {
+        synchronized (this) {
+            if(this.state.isFinished()){
+                return;
+            }
+            this.state = finalState;
+            this.error = cause;
+            this.endNanos = System.nanoTime();
+        }
+        this.completion.complete(finalState);
+    }
+
+    /**
+     * Interrupt the job thread
+     * @return false if the job had already finished
+     */
+    public boolean cancel() {
+        if(this.state.isFinished()){
+            return false;
+        }
+
+        final Thread running = this.thread;
+        finish(JobState.CANCELLED, null);
+        if(running != null){
+            running.interrupt();
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the job to finish
+     * @return final state
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public JobState await() throws InterruptedException {
+        try {
+            return this.completion.get();
+        }
+        catch (final ExecutionException e) {
+            return this.state;
+        }
+    }
+
+    /**
+     * Wait for the job to finish, at most the given time
+     * @param timeoutMillis max wait
+     * @return true if the job has finished
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean await(final long timeoutMillis) throws InterruptedException {
+        try {
+            this.completion.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (final TimeoutException | ExecutionException e) {
+            return this.state.isFinished();
+        }
+    }
+
+    /**
+     * Take the output captured since the last call
+     * @return captured text, empty if not captured
+     */
+    public String drainOutput() {
+        return this.output != null ? this.output.drain() : "";
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getCommandLine() {
+        return commandLine;
+    }
+
+    public MemorySink getOutput() {
+        return output;
+    }
+
+    public JobState getState() {
+        return state;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public CompletableFuture<JobState> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * @return run time so far, or total run time once finished
+     */
+    public long getElapsedMillis() {
+        final long end = this.state.isFinished() ? this.endNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - this.startNanos);
+    }
+
+    boolean isReported() {
+        return reported;
+    }
+
+    void setReported() {
+        this.reported = true;
+    }
+}
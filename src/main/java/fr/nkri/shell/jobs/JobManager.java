@@ -0,0 +1,163 @@
+package fr.nkri.shell.jobs;
+
+import fr.nkri.shell.enums.JobState;
+import fr.nkri.shell.io.LineReader;
+import fr.nkri.shell.io.OutputSink;
+import fr.nkri.shell.io.ShellOutput;
+import fr.nkri.shell.server.ShellSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Table of the background jobs of a shell.
+ * Every job runs on its own virtual thread, so dozens of slow
+ * commands can wait on I/O at the same time without blocking the prompt.
+ */
+public class JobManager {
+
+    /*
+    Finished jobs still holding output, the oldest are dropped past this
+     */
+    public static final int MAX_FINISHED = 32;
+
+    /*
+    Job number -> job, ordered for listing
+     */
+    private final ConcurrentNavigableMap<Integer, Job> jobs;
+    private final AtomicInteger nextId;
+
+    public JobManager() {
+        this.jobs = new ConcurrentSkipListMap<>();
+        this.nextId = new AtomicInteger(1);
+    }
+
+    /**
+     * Start a task in the background
+     * @param commandLine command line shown in the jobs table
+     * @param task work to run
+     * @param captureOutput true to keep the task output in the job until it is asked for,
+     *                      false to print it straight to the shell output
+     * @return started job
+     */
+    public Job submit(final String commandLine, final Runnable task, final boolean captureOutput) {
+        final Job job = new Job(this.nextId.getAndIncrement(), commandLine, captureOutput);
+        this.jobs.put(job.getId(), job);
+
+        /*
+        The job keeps the output, the input and the session of the thread starting it
+         */
+        final OutputSink parent = ShellOutput.sink();
+        final ShellSession session = ShellSession.current();
+        final LineReader input = LineReader.current();
+
+        job.start(Thread.ofVirtual().name("job-" + job.getId()).unstarted(() -> {
+            ShellOutput.bind(job.getOutput() != null ? job.getOutput() : parent);
+            ShellSession.bind(session);
+            LineReader.bind(input);
+            try {
+                task.run();
+                job.finish(JobState.DONE, null);
+            }
+            catch (final Throwable e) {
+                ShellOutput.println("[ERROR] " + e);
+                job.finish(JobState.FAILED, e);
+            }
+            finally {
+                ShellOutput.flush();
+                ShellOutput.bind(null);
+                ShellSession.bind(null);
+                LineReader.bind(null);
+            }
+        }));
+
+        return job;
+    }
+
+    /**
+     * @param id job number
+     * @return job or null if unknown
+     */
+    public Job get(final int id) {
+        return this.jobs.get(id);
+    }
+
+    /**
+     * @return most recent job, null if there is none
+     */
+    public Job last() {
+        final var entry = this.jobs.lastEntry();
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * @return all jobs ordered by number
+     */
+    public Collection<Job> list() {
+        return Collections.unmodifiableCollection(this.jobs.values());
+    }
+
+    /**
+     * Forget a job, cancelling it if still running
+     * @param id job number
+     * @return removed job or null if unknown
+     */
+    public Job remove(final int id) {
+        final Job job = this.jobs.remove(id);
+        if(job != null){
+            job.cancel();
+        }
+        return job;
+    }
+
+    /**
+     * Jobs that finished since the last call, each reported once.
+     * Once reported, a job with no output to read is forgotten, and only the last
+     * MAX_FINISHED jobs holding output are kept, so a long session doesn't pile them up.
+     * @return newly finished jobs
+     */
+    public List<Job> collectFinished() {
+        final List<Job> finished = new ArrayList<>();
+        final List<Job> kept = new ArrayList<>();
+        for(Job job : this.jobs.values()){
+            if(!job.getState().isFinished()){
+                continue;
+            }
+            if(!job.isReported()){
+                job.setReported();
+                finished.add(job);
+            }
+
+            if(job.getOutput() == null || job.getOutput().length() == 0){
+                this.jobs.remove(job.getId(), job);
+            }
+            else {
+                kept.add(job);
+            }
+        }
+
+        for(int i = 0; i < kept.size() - MAX_FINISHED; i++){
+            this.jobs.remove(kept.get(i).getId(), kept.get(i));
+        }
+        return finished;
+    }
+
+    public int size() {
+        return this.jobs.size();
+    }
+
+    /**
+     * Cancel every running job and clear the table
+     */
+    public void shutdown() {
+        for(Job job : this.jobs.values()){
+            job.cancel();
+        }
+        this.jobs.clear();
+    }
+}
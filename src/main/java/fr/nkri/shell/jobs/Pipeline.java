@@ -0,0 +1,204 @@
+package fr.nkri.shell.jobs;
+
+import fr.nkri.shell.cmds.ShellCommand;
+import fr.nkri.shell.cmds.StreamingShellCommand;
+import fr.nkri.shell.io.*;
+import fr.nkri.shell.metrics.MetricsRegistry;
+import fr.nkri.shell.server.ShellSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Commands chained with '|', each stage running on its own virtual thread.
+ * Stages exchange lines through bounded LinePipes. The first stage may be any command,
+ * its printed output becoming lines; the next ones must be StreamingShellCommands.
+ */
+public class Pipeline {
+
+    private final List<ShellCommand> commands;
+    private final List<String[]> arguments;
+
+    /*
+    Where stage executions are recorded, null to skip it
+     */
+    private final MetricsRegistry metrics;
+
+    public Pipeline() {
+        this(null);
+    }
+
+    /**
+     * Pipeline
+     * @param metrics registry recording every stage execution, null for none
+     */
+    public Pipeline(final MetricsRegistry metrics) {
+        this.commands = new ArrayList<>();
+        this.arguments = new ArrayList<>();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Append a stage
+     * @param command stage command, streaming unless it is the first stage
+     * @param args stage arguments
+     * @return this pipeline
+     * @throws IllegalArgumentException if the command cannot read from a pipe
+     */
+    public Pipeline add(final ShellCommand command, final String[] args) {
+        if(!this.commands.isEmpty() && !(command instanceof StreamingShellCommand)){
+            throw new IllegalArgumentException(command.getName() + " cannot read from a pipe");
+        }
+
+        this.commands.add(command);
+        this.arguments.add(args);
+        return this;
+    }
+
+    public int size() {
+        return this.commands.size();
+    }
+
+    /**
+     * Run every stage and wait for all of them.
+     * The last stage writes to the output sink of the calling thread,
+     * a single command runs on the calling thread itself.
+     * @return false if a stage failed
+     * @throws InterruptedException if the calling thread is interrupted, all stages are then cancelled
+     */
+    public boolean run() throws InterruptedException {
+        final int size = this.commands.size();
+
+        /*
+        Single command : run it in place
+         */
+        if(size == 1){
+            runStage(0, null, null, null);
+            return true;
+        }
+
+        final OutputSink target = ShellOutput.sink();
+        final ShellSession session = ShellSession.current();
+        final LineReader input = LineReader.current();
+
+        final LinePipe[] pipes = new LinePipe[size - 1];
+        for(int i = 0; i < pipes.length; i++){
+            pipes[i] = new LinePipe();
+        }
+
+        final Thread[] threads = new Thread[size];
+        final Throwable[] errors = new Throwable[size];
+
+        for(int i = 0; i < size; i++){
+            final int stage = i;
+            final LinePipe in = stage > 0 ? pipes[stage - 1] : null;
+            final LinePipe out = stage < size - 1 ? pipes[stage] : null;
+
+            threads[stage] = Thread.ofVirtual().name("pipe-" + stage).start(() -> {
+                ShellOutput.bind(target);
+                ShellSession.bind(session);
+                LineReader.bind(input);
+                try {
+                    runStage(stage, in, out, target);
+                }
+                catch (final BrokenPipeException | InterruptedException e) {
+                    /*
+                    Stopped early : downstream is done or the pipeline is cancelled
+                     */
+                }
+                catch (final Throwable e) {
+                    errors[stage] = e;
+                    target.println("[ERROR] " + this.commands.get(stage).getName() + ": " + e);
+                    for(Thread thread : threads){
+                        if(thread != null && thread != Thread.currentThread()){
+                            thread.interrupt();
+                        }
+                    }
+                }
+                finally {
+                    if(in != null){
+                        in.closeReader();
+                    }
+                    if(out != null){
+                        try {
+                            out.close();
+                        }
+                        catch (final InterruptedException e) {
+                            out.closeReader();
+                        }
+                    }
+                    ShellOutput.bind(null);
+                    ShellSession.bind(null);
+                    LineReader.bind(null);
+                }
+            });
+        }
+
+        try {
+            for(Thread thread : threads){
+                thread.join();
+            }
+        }
+        catch (final InterruptedException e) {
+            for(Thread thread : threads){
+                thread.interrupt();
+            }
+            throw e;
+        }
+        finally {
+            target.flush();
+        }
+
+        for(Throwable error : errors){
+            if(error != null){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void runStage(final int stage, final LineSource in, final LineSink out, final OutputSink target) throws InterruptedException {
+        final ShellCommand command = this.commands.get(stage);
+        final String[] args = this.arguments.get(stage);
+        final MetricsRegistry.Timer timer = this.metrics != null ? this.metrics.start(command.getName(), args.length) : null;
+
+        boolean failed = true;
+        try {
+            invoke(command, args, in, out, target);
+            failed = false;
+        }
+        catch (final BrokenPipeException | InterruptedException e) {
+            failed = false;
+            throw e;
+        }
+        finally {
+            if(timer != null){
+                timer.stop(failed);
+            }
+        }
+    }
+
+    private static void invoke(final ShellCommand command, final String[] args, final LineSource in, final LineSink out, final OutputSink target) throws InterruptedException {
+        /*
+        Outside of a pipeline, or its last stage
+         */
+        if(out == null && in == null){
+            command.action(args);
+            return;
+        }
+
+        final LineSink output = out != null ? out : target::println;
+        if(command instanceof StreamingShellCommand streaming){
+            streaming.pipe(args, in != null ? in : LineSource.EMPTY, output);
+            return;
+        }
+
+        /*
+        Regular first stage : whatever it prints becomes lines
+         */
+        final PipeOutputSink sink = new PipeOutputSink(output);
+        ShellOutput.bind(sink);
+        command.action(args);
+        sink.finish();
+    }
+}
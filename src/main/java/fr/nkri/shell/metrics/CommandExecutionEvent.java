@@ -0,0 +1,28 @@
+package fr.nkri.shell.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted for every command execution,
+ * to line commands up with GC and I/O events in a recording
+ */
+@Name("fr.nkri.shell.CommandExecution")
+@Label("Shell Command Execution")
+@Category("MiniShell")
+@Description("Execution of a MiniShell command")
+public class CommandExecutionEvent extends Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Arguments")
+    @Description("Number of arguments")
+    public int arguments;
+
+    @Label("Failed")
+    public boolean failed;
+}
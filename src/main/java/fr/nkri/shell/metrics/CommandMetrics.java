@@ -0,0 +1,61 @@
+package fr.nkri.shell.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of one command
+ */
+public class CommandMetrics {
+
+    private final String name;
+    private final LongAdder invocations;
+    private final LongAdder errors;
+    private final LatencyHistogram latency;
+
+    /**
+     * Command metrics
+     * @param name command name
+     */
+    public CommandMetrics(final String name) {
+        this.name = name;
+        this.invocations = new LongAdder();
+        this.errors = new LongAdder();
+        this.latency = new LatencyHistogram();
+    }
+
+    /**
+     * Record one execution
+     * @param nanos execution time
+     * @param failed true if the command threw
+     */
+    public void record(final long nanos, final boolean failed) {
+        this.invocations.increment();
+        if(failed){
+            this.errors.increment();
+        }
+        this.latency.record(nanos);
+    }
+
+    /**
+     * @return immutable copy of the current values
+     */
+    public CommandStats snapshot() {
+        return new CommandStats(this.name, this.invocations.sum(), this.errors.sum(),
+                this.latency.getPercentile(50), this.latency.getPercentile(99),
+                this.latency.getMax(), (long) this.latency.getMean());
+    }
+
+    public void reset() {
+        this.invocations.reset();
+        this.errors.reset();
+        this.latency.reset();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
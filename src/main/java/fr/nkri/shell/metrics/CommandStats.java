@@ -0,0 +1,73 @@
+package fr.nkri.shell.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the metrics of one command, latencies in nanoseconds
+ */
+public class CommandStats {
+
+    private final String command;
+    private final long invocations;
+    private final long errors;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+    private final long meanNanos;
+
+    public CommandStats(final String command, final long invocations, final long errors,
+                        final long p50Nanos, final long p99Nanos, final long maxNanos, final long meanNanos) {
+        this.command = command;
+        this.invocations = invocations;
+        this.errors = errors;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+        this.meanNanos = meanNanos;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public long getInvocations() {
+        return invocations;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getMeanNanos() {
+        return meanNanos;
+    }
+
+    /**
+     * @return one CSV line: command,invocations,errors,p50,p99,max,mean (nanoseconds)
+     */
+    public String toCsv() {
+        return command + "," + invocations + "," + errors + "," + p50Nanos + "," + p99Nanos + "," + maxNanos + "," + meanNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s calls=%d errors=%d p50=%.3fms p99=%.3fms max=%.3fms",
+                command, invocations, errors, millis(p50Nanos), millis(p99Nanos), millis(maxNanos));
+    }
+
+    public static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,117 @@
+package fr.nkri.shell.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ * Every power of two is split in 8 sub-buckets, so any percentile is known
+ * within 12.5% while recording stays a couple of atomic increments.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0L);
+    }
+
+    /**
+     * Record one value
+     * @param value latency, in nanoseconds for instance, negative values count as 0
+     */
+    public void record(final long value) {
+        final long positive = Math.max(0L, value);
+        this.buckets.incrementAndGet(bucketOf(positive));
+        this.count.increment();
+        this.sum.add(positive);
+        this.max.accumulate(positive);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public double getMean() {
+        final long total = this.count.sum();
+        return total == 0 ? 0 : this.sum.sum() / (double) total;
+    }
+
+    /**
+     * Value below which the given share of the records fall
+     * @param percentile between 0 and 100
+     * @return upper bound of the matching bucket, capped by the max, 0 if empty
+     */
+    public long getPercentile(final double percentile) {
+        final long total = this.count.sum();
+        if(total == 0){
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, percentile) / 100.0));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += this.buckets.get(i);
+            if(seen >= rank){
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Forget every record
+     */
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++){
+            this.buckets.set(i, 0);
+        }
+        this.count.reset();
+        this.sum.reset();
+        this.max.reset();
+    }
+
+    /*
+    Values below 8 get their own bucket, then 8 buckets per power of two
+     */
+    private static int bucketOf(final long value) {
+        if(value < SUB_BUCKETS){
+            return (int) value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(final int bucket) {
+        if(bucket < SUB_BUCKETS){
+            return bucket;
+        }
+
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        if(exponent >= 63){
+            return Long.MAX_VALUE;
+        }
+
+        final long subBucket = bucket % SUB_BUCKETS;
+        final long lower = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,101 @@
+package fr.nkri.shell.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per command invocation count, error count and latency histogram.
+ * Recording is lock-free once a command has run once.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, CommandMetrics> metrics;
+
+    public MetricsRegistry() {
+        this.metrics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start timing a command execution
+     * @param command command name
+     * @param arguments number of arguments
+     * @return timer to stop once the command returns
+     */
+    public Timer start(final String command, final int arguments) {
+        return new Timer(this.metrics.computeIfAbsent(command, CommandMetrics::new), arguments);
+    }
+
+    /**
+     * @param command command name
+     * @return live metrics of the command, null if it never ran
+     */
+    public CommandMetrics get(final String command) {
+        return this.metrics.get(command);
+    }
+
+    /**
+     * @return snapshot of every command, most called first
+     */
+    public List<CommandStats> snapshot() {
+        final List<CommandStats> stats = new ArrayList<>();
+        for(CommandMetrics commandMetrics : this.metrics.values()){
+            stats.add(commandMetrics.snapshot());
+        }
+
+        stats.sort(Comparator.comparingLong(CommandStats::getInvocations).reversed()
+                .thenComparing(CommandStats::getCommand));
+        return stats;
+    }
+
+    /**
+     * Write the snapshot as CSV, with a header line
+     * @param out destination
+     * @throws IOException if writing fails
+     */
+    public void exportCsv(final Appendable out) throws IOException {
+        out.append("command,invocations,errors,p50_ns,p99_ns,max_ns,mean_ns\n");
+        for(CommandStats stats : snapshot()){
+            out.append(stats.toCsv()).append('\n');
+        }
+    }
+
+    /**
+     * Forget every recorded execution
+     */
+    public void reset() {
+        this.metrics.clear();
+    }
+
+    /**
+     * One running command execution
+     */
+    public static final class Timer {
+
+        private final CommandMetrics commandMetrics;
+        private final CommandExecutionEvent event;
+        private final long start;
+
+        private Timer(final CommandMetrics commandMetrics, final int arguments) {
+            this.commandMetrics = commandMetrics;
+            this.event = new CommandExecutionEvent();
+            this.event.command = commandMetrics.getName();
+            this.event.arguments = arguments;
+            this.event.begin();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Record the execution
+         * @param failed true if the command threw
+         */
+        public void stop(final boolean failed) {
+            this.commandMetrics.record(System.nanoTime() - this.start, failed);
+            this.event.failed = failed;
+            this.event.commit();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package fr.nkri.shell.server;
+
+/**
+ * Options of ShellServer
+ */
+public class ServerOptions {
+
+    private int maxSessions = 10_000;
+    private int bufferSize = 4096;
+    private int historyCapacity = 1000;
+    private boolean colors = true;
+    private boolean allowRemote;
+
+    /**
+     * @param maxSessions sessions attached at once, the next connections are refused
+     * @return these options
+     */
+    public ServerOptions maxSessions(final int maxSessions) {
+        if(maxSessions < 1){
+            throw new IllegalArgumentException("Max sessions must be at least 1!");
+        }
+        this.maxSessions = maxSessions;
+        return this;
+    }
+
+    /**
+     * Small buffers keep idle sessions cheap, output is still written in one go per command
+     * @param bufferSize input and output buffer size of every session
+     * @return these options
+     */
+    public ServerOptions bufferSize(final int bufferSize) {
+        if(bufferSize < 256){
+            throw new IllegalArgumentException("Buffer size must be at least 256!");
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * @param historyCapacity lines kept in the history of every session
+     * @return these options
+     */
+    public ServerOptions historyCapacity(final int historyCapacity) {
+        if(historyCapacity < 1){
+            throw new IllegalArgumentException("History capacity must be at least 1!");
+        }
+        this.historyCapacity = historyCapacity;
+        return this;
+    }
+
+    /**
+     * @param colors false to strip ANSI escape codes, e.g. for clients writing to a file
+     * @return these options
+     */
+    public ServerOptions colors(final boolean colors) {
+        this.colors = colors;
+        return this;
+    }
+
+    /**
+     * Sessions run any registered command without authentication : by default the server
+     * only listens on the loopback interface or a Unix domain socket.
+     * Only allow other addresses on a network you trust, or behind an authenticating tunnel (e.g. SSH).
+     * @param allowRemote true to listen on non loopback addresses as well
+     * @return these options
+     */
+    public ServerOptions allowRemote(final boolean allowRemote) {
+        this.allowRemote = allowRemote;
+        return this;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getHistoryCapacity() {
+        return historyCapacity;
+    }
+
+    public boolean isColors() {
+        return colors;
+    }
+
+    public boolean isAllowRemote() {
+        return allowRemote;
+    }
+}
@@ -0,0 +1,74 @@
+package fr.nkri.shell.server;
+
+import fr.nkri.shell.cli.MiniCLI;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Minimal client of ShellServer : typed bytes go to the session, the session output is copied back as it comes.
+ * Usage: java fr.nkri.shell.server.ShellClient [host:port | port | unix:/path]
+ */
+public class ShellClient {
+
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    public static void main(final String[] args) {
+        final String spec = args.length > 0 ? args[0] : "7777";
+        try {
+            connect(ShellServer.address(spec), System.in, System.out);
+        }
+        catch (final IOException | IllegalArgumentException e) {
+            MiniCLI.error("Cannot connect to " + spec + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Attach to a session until the server closes it or the input ends
+     * @param address server address
+     * @param in typed input
+     * @param out session output
+     */
+    public static void connect(final SocketAddress address, final InputStream in, final OutputStream out) throws IOException {
+        try (SocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open()) {
+            channel.connect(address);
+
+            /*
+            Input side on a daemon thread : it may stay blocked on the terminal once the session is over
+             */
+            Thread.ofPlatform().daemon().name("shell-client-input").start(() -> {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                try {
+                    int read;
+                    while((read = in.read(buffer)) >= 0){
+                        final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                        while(bytes.hasRemaining()){
+                            channel.write(bytes);
+                        }
+                    }
+                    channel.shutdownOutput();
+                }
+                catch (final IOException ignored) {
+                    /*
+                    Session closed by the server
+                     */
+                }
+            });
+
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while(channel.read(buffer) >= 0){
+                out.write(buffer.array(), 0, buffer.position());
+                out.flush();
+                buffer.clear();
+            }
+        }
+    }
+}
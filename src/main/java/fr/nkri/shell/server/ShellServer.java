@@ -0,0 +1,268 @@
+package fr.nkri.shell.server;
+
+import fr.nkri.shell.MiniShell;
+import fr.nkri.shell.cli.MiniCLI;
+import fr.nkri.shell.io.LineReader;
+import fr.nkri.shell.io.TerminalSink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves one shell to many operators over a TCP or Unix domain socket.
+ * Every connection is a session running the shell loop on its own virtual thread :
+ * an idle session is a parked virtual thread and two small buffers, so thousands of them are cheap.
+ * Commands, shell variables and metrics are shared, input, output, history, jobs and session variables are not.
+ * Sessions are not authenticated, so only loopback and Unix domain socket addresses are accepted
+ * unless ServerOptions.allowRemote(true) is set.
+ */
+public class ShellServer implements Closeable {
+
+    private final MiniShell shell;
+    private final SocketAddress address;
+    private final ServerOptions options;
+
+    private final Map<Integer, ShellSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /*
+    Session slots taken, reserved by the acceptor before the session thread starts
+     */
+    private final AtomicInteger slots = new AtomicInteger();
+
+    private ServerSocketChannel server;
+    private Thread acceptor;
+
+    /*
+    Socket file bound by this server, removed on close
+     */
+    private Path socketPath;
+
+    /**
+     * Shell server, see start()
+     * @param shell shell to serve
+     * @param address InetSocketAddress or UnixDomainSocketAddress to listen on, see address()
+     * @param options sessions limits and buffers
+     */
+    public ShellServer(final MiniShell shell, final SocketAddress address, final ServerOptions options) {
+        this.shell = shell;
+        this.address = address;
+        this.options = options;
+    }
+
+    public ShellServer(final MiniShell shell, final SocketAddress address) {
+        this(shell, address, new ServerOptions());
+    }
+
+    /**
+     * Parse a listening address
+     * @param spec "unix:/path/to/socket", "host:port" or "port" (loopback), see ServerOptions.allowRemote()
+     * @return socket address
+     */
+    public static SocketAddress address(final String spec) {
+        if(spec.startsWith("unix:")){
+            return UnixDomainSocketAddress.of(spec.substring(5));
+        }
+
+        final int colon = spec.lastIndexOf(':');
+        if(colon < 0){
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(spec));
+        }
+        return new InetSocketAddress(spec.substring(0, colon), Integer.parseInt(spec.substring(colon + 1)));
+    }
+
+    /**
+     * Listen and accept sessions in the background
+     * @return this server
+     * @throws IllegalStateException if the address is not loopback and remote sessions are not allowed
+     * @throws IOException if the address can't be bound, or the Unix socket path is a file or is served by another process
+     */
+    public synchronized ShellServer start() throws IOException {
+        if(this.server != null){
+            return this;
+        }
+
+        if(this.address instanceof InetSocketAddress inet && !this.options.isAllowRemote()
+                && (inet.getAddress() == null || !inet.getAddress().isLoopbackAddress())){
+            throw new IllegalStateException("Refusing to serve unauthenticated sessions on " + inet
+                    + ", listen on loopback or allow it with ServerOptions.allowRemote(true)");
+        }
+
+        if(this.address instanceof UnixDomainSocketAddress unix){
+            removeStaleSocket(unix);
+            this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        }
+        else {
+            this.server = ServerSocketChannel.open();
+        }
+        this.server.bind(this.address);
+        if(this.address instanceof UnixDomainSocketAddress unix){
+            this.socketPath = unix.getPath();
+        }
+
+        this.acceptor = Thread.ofPlatform().daemon().name("shell-server").start(this::accept);
+        return this;
+    }
+
+    /*
+    A socket file left by a previous run would make the bind fail, it is removed only if nothing answers on it :
+    a regular file, a directory or the socket of a running server is never touched
+     */
+    private static void removeStaleSocket(final UnixDomainSocketAddress unix) throws IOException {
+        final Path path = unix.getPath();
+        if(!Files.exists(path, LinkOption.NOFOLLOW_LINKS)){
+            return;
+        }
+        if(!isSocket(path)){
+            throw new IOException("Refusing to replace " + path + ", it is not a socket");
+        }
+
+        try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            probe.connect(unix);
+        }
+        catch (final ConnectException e) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        throw new IOException("Another server is already listening on " + path);
+    }
+
+    /*
+    Sockets are the only special files expected here, anything else is reported as a file
+     */
+    private static boolean isSocket(final Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+    }
+
+    /*
+    Accept loop, one virtual thread per session
+     */
+    private void accept() {
+        while(true){
+            final SocketChannel channel;
+            try {
+                channel = this.server.accept();
+            }
+            catch (final ClosedChannelException e) {
+                return;
+            }
+            catch (final IOException e) {
+                MiniCLI.error("Shell server error: " + e.getMessage());
+                return;
+            }
+
+            if(this.slots.incrementAndGet() > this.options.getMaxSessions()){
+                this.slots.decrementAndGet();
+                refuse(channel);
+                continue;
+            }
+
+            final int id = this.nextId.incrementAndGet();
+            Thread.ofVirtual().name("session-" + id).start(() -> serve(id, channel));
+        }
+    }
+
+    private void serve(final int id, final SocketChannel channel) {
+        String remote;
+        try {
+            remote = String.valueOf(channel.getRemoteAddress());
+        }
+        catch (final IOException e) {
+            remote = "?";
+        }
+
+        final LineReader input = new LineReader(channel, StandardCharsets.UTF_8, this.options.getBufferSize());
+        final TerminalSink output = new TerminalSink(Channels.newOutputStream(channel), StandardCharsets.UTF_8,
+                this.options.isColors(), this.options.getBufferSize());
+        final ShellSession session = new ShellSession(id, remote, input, output, channel, this.options.getHistoryCapacity());
+
+        this.sessions.put(id, session);
+        try {
+            this.shell.runSession(session);
+        }
+        catch (final RuntimeException e) {
+            output.println("Session error: " + e.getMessage());
+            output.flush();
+        }
+        finally {
+            this.sessions.remove(id);
+            this.slots.decrementAndGet();
+            try {
+                channel.close();
+            }
+            catch (final IOException ignored) {
+            }
+        }
+    }
+
+    private static void refuse(final SocketChannel channel) {
+        try (channel) {
+            channel.write(StandardCharsets.UTF_8.encode("Too many sessions, try again later.\n"));
+        }
+        catch (final IOException ignored) {
+        }
+    }
+
+    /**
+     * @return sessions attached right now
+     */
+    public List<ShellSession> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return address listened on, with the actual port if 0 was asked
+     */
+    public synchronized SocketAddress getLocalAddress() throws IOException {
+        return server != null ? server.getLocalAddress() : address;
+    }
+
+    public boolean isRunning() {
+        return server != null && server.isOpen();
+    }
+
+    /**
+     * Stop accepting and disconnect every session
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(this.server == null){
+            return;
+        }
+
+        this.server.close();
+        for(ShellSession session : this.sessions.values()){
+            session.close();
+        }
+        if(this.socketPath != null){
+            if(Files.exists(this.socketPath, LinkOption.NOFOLLOW_LINKS) && isSocket(this.socketPath)){
+                Files.deleteIfExists(this.socketPath);
+            }
+            this.socketPath = null;
+        }
+    }
+}
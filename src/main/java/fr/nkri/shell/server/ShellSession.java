@@ -0,0 +1,147 @@
+package fr.nkri.shell.server;
+
+import fr.nkri.shell.history.History;
+import fr.nkri.shell.io.LineReader;
+import fr.nkri.shell.io.OutputSink;
+import fr.nkri.shell.jobs.JobManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One operator attached to a shared shell : its own input, output, history, jobs
+ * and variables, layered over the variables of the shell.
+ * The session is bound to the threads running its commands, see current().
+ */
+public class ShellSession implements Closeable {
+
+    /*
+    Session of the current thread, null outside of any session
+     */
+    private static final ThreadLocal<ShellSession> threadSession = new ThreadLocal<>();
+
+    private final int id;
+    private final String remoteAddress;
+    private final LineReader input;
+    private final OutputSink output;
+    private final Closeable connection;
+    private final long startedAt;
+
+    private final Map<String, String> environmentVars;
+    private final History history;
+    private final JobManager jobManager;
+
+    /**
+     * Session
+     * @param id session number
+     * @param remoteAddress address of the operator, for display
+     * @param input lines typed by the operator
+     * @param output what the operator sees
+     * @param connection closed with the session, null if none
+     * @param historyCapacity lines kept in the session history
+     */
+    public ShellSession(final int id, final String remoteAddress, final LineReader input, final OutputSink output,
+                        final Closeable connection, final int historyCapacity) {
+        this.id = id;
+        this.remoteAddress = remoteAddress;
+        this.input = input;
+        this.output = output;
+        this.connection = connection;
+        this.startedAt = System.currentTimeMillis();
+        this.environmentVars = new ConcurrentHashMap<>();
+        this.history = new History(historyCapacity);
+        this.jobManager = new JobManager();
+    }
+
+    /**
+     * @return session of the current thread, null outside of any session
+     */
+    public static ShellSession current() {
+        return threadSession.get();
+    }
+
+    /**
+     * Run the current thread on behalf of a session
+     * @param session session of this thread, null to leave it
+     */
+    public static void bind(final ShellSession session) {
+        if(session == null){
+            threadSession.remove();
+        }
+        else {
+            threadSession.set(session);
+        }
+    }
+
+    /**
+     * @param name variable name
+     * @return value set in this session, null if only the shell may have it
+     */
+    public String getEnvVar(final String name) {
+        return this.environmentVars.get(name);
+    }
+
+    public void setEnvVar(final String name, final String value) {
+        this.environmentVars.put(name, value);
+    }
+
+    public boolean hasEnvVar(final String name) {
+        return this.environmentVars.containsKey(name);
+    }
+
+    /**
+     * Remove the session value, the shell value shows again if there is one
+     * @param name variable name
+     */
+    public void removeEnvVar(final String name) {
+        this.environmentVars.remove(name);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public LineReader getInput() {
+        return input;
+    }
+
+    public OutputSink getOutput() {
+        return output;
+    }
+
+    public History getHistory() {
+        return history;
+    }
+
+    public JobManager getJobManager() {
+        return jobManager;
+    }
+
+    /**
+     * @return time the session started, in epoch milliseconds
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Disconnect the operator, the session loop ends on its next read
+     */
+    @Override
+    public void close() throws IOException {
+        if(this.connection != null){
+            this.connection.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "#" + id + " " + remoteAddress;
+    }
+}
@@ -0,0 +1,308 @@
+package fr.nkri.shell.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Splits a command line into tokens.
+ * Handles runs of whitespace, 'single' and "double" quotes and backslash escapes.
+ * $NAME and ${NAME} are expanded while splitting, unquoted or in double quotes only,
+ * so 'single quotes' and \$ keep them as typed and a value is never split or parsed again.
+ * An unquoted '|' splits the line into pipeline segments,
+ * an unquoted trailing {@code &} marks the line to run in the background.
+ * The character buffer and the token list are reused from one line to the next,
+ * so one lexer should be kept per shell loop.
+ */
+public class CommandLexer {
+
+    private static final String[] NO_ARGS = new String[0];
+
+    /*
+    Reusable token storage
+     */
+    private final List<String> tokens;
+    private final List<Integer> segmentStarts;
+    private char[] buffer;
+    private boolean background;
+    private int expandedSize;
+
+    public CommandLexer() {
+        this.tokens = new ArrayList<>();
+        this.segmentStarts = new ArrayList<>();
+        this.buffer = new char[256];
+    }
+
+    /**
+     * Tokenize a line, replacing the tokens of the previous line
+     * @param line line to split
+     * @return number of tokens
+     * @throws IllegalArgumentException if a quote is not closed, {@code &} is not last or a pipeline segment is empty
+     */
+    public int tokenize(final CharSequence line){
+        return tokenize(line, null);
+    }
+
+    /**
+     * Tokenize a line, expanding its variable references
+     * @param line line to split
+     * @param lookup variable name to value, null if unknown, or null to expand nothing
+     * @return number of tokens
+     * @throws IllegalArgumentException if a quote is not closed, {@code &} is not last or a pipeline segment is empty
+     */
+    public int tokenize(final CharSequence line, final Function<String, String> lookup){
+        this.tokens.clear();
+        this.segmentStarts.clear();
+        this.segmentStarts.add(0);
+        this.background = false;
+        if(this.buffer.length < line.length()){
+            this.buffer = new char[Math.max(line.length(), this.buffer.length * 2)];
+        }
+
+        char[] chars = this.buffer;
+        final int length = line.length();
+        int size = 0;
+        boolean inToken = false;
+        char quote = 0;
+
+        for(int i = 0; i < length; i++){
+            final char c = line.charAt(i);
+
+            /*
+            Inside quotes : only the closing quote and, in double quotes, escapes are special
+             */
+            if(quote != 0){
+                if(c == quote){
+                    quote = 0;
+                }
+                else if(c == '\\' && quote == '"' && i + 1 < length && isDoubleQuoteEscape(line.charAt(i + 1))){
+                    chars[size++] = line.charAt(++i);
+                }
+                else if(c == '$' && quote == '"' && lookup != null){
+                    i = expand(line, i, lookup, size) - 1;
+                    chars = this.buffer;
+                    size = this.expandedSize;
+                }
+                else {
+                    chars[size++] = c;
+                }
+                continue;
+            }
+
+            if(Character.isWhitespace(c) || c == '&' || c == '|'){
+                if(inToken){
+                    this.tokens.add(new String(chars, 0, size));
+                    size = 0;
+                    inToken = false;
+                }
+                if(c == '&'){
+                    checkNotBackground();
+                    this.background = true;
+                }
+                else if(c == '|'){
+                    checkNotBackground();
+                    endSegment();
+                }
+                continue;
+            }
+
+            checkNotBackground();
+
+            if(c == '$' && lookup != null){
+                i = expand(line, i, lookup, size) - 1;
+                chars = this.buffer;
+                inToken |= this.expandedSize > size;
+                size = this.expandedSize;
+                continue;
+            }
+
+            inToken = true;
+            if(c == '\'' || c == '"'){
+                quote = c;
+            }
+            else if(c == '\\' && i + 1 < length){
+                chars[size++] = line.charAt(++i);
+            }
+            else {
+                chars[size++] = c;
+            }
+        }
+
+        if(quote != 0){
+            this.tokens.clear();
+            throw new IllegalArgumentException("Unclosed quote " + quote);
+        }
+
+        if(inToken){
+            this.tokens.add(new String(chars, 0, size));
+        }
+
+        if(this.segmentStarts.size() > 1){
+            endSegment();
+            this.segmentStarts.remove(this.segmentStarts.size() - 1);
+        }
+
+        return this.tokens.size();
+    }
+
+    /*
+    Append the value of the reference at a '$' to the token buffer, or the text as typed
+    if it's not a reference or the variable is unknown. Sets expandedSize, returns the index after it
+     */
+    private int expand(final CharSequence line, final int dollar, final Function<String, String> lookup, final int size){
+        final int end = referenceEnd(line, dollar);
+        final CharSequence value;
+        if(end < 0){
+            value = "$";
+        }
+        else {
+            final String found = lookup.apply(referenceName(line, dollar, end));
+            value = found != null ? found : line.subSequence(dollar, end);
+        }
+
+        /*
+        A value may be longer than the line it came from
+         */
+        final int remaining = line.length() - (end < 0 ? dollar + 1 : end);
+        if(this.buffer.length < size + value.length() + remaining){
+            final char[] grown = new char[Math.max(size + value.length() + remaining, this.buffer.length * 2)];
+            System.arraycopy(this.buffer, 0, grown, 0, size);
+            this.buffer = grown;
+        }
+        for(int i = 0; i < value.length(); i++){
+            this.buffer[size + i] = value.charAt(i);
+        }
+
+        this.expandedSize = size + value.length();
+        return end < 0 ? dollar + 1 : end;
+    }
+
+    /*
+    Nothing may follow the background marker
+     */
+    private void checkNotBackground(){
+        if(this.background){
+            this.tokens.clear();
+            throw new IllegalArgumentException("'&' must end the command line");
+        }
+    }
+
+    /*
+    Close the current pipeline segment, which must hold a command
+     */
+    private void endSegment(){
+        if(this.tokens.size() == this.segmentStarts.get(this.segmentStarts.size() - 1)){
+            this.tokens.clear();
+            throw new IllegalArgumentException("Missing command around '|'");
+        }
+        this.segmentStarts.add(this.tokens.size());
+    }
+
+    /**
+     * @return true if the last line ended with an unquoted {@code &}
+     */
+    public boolean isBackground(){
+        return this.background;
+    }
+
+    /**
+     * @return number of pipeline segments of the last line, 1 without '|'
+     */
+    public int segmentCount(){
+        return this.segmentStarts.size();
+    }
+
+    /**
+     * @param segment segment index
+     * @return index of the first token (the command name) of the segment
+     */
+    public int segmentStart(final int segment){
+        return this.segmentStarts.get(segment);
+    }
+
+    /**
+     * @param segment segment index
+     * @return index after the last token of the segment
+     */
+    public int segmentEnd(final int segment){
+        return segment + 1 < this.segmentStarts.size() ? this.segmentStarts.get(segment + 1) : this.tokens.size();
+    }
+
+    /**
+     * @return number of tokens of the last line
+     */
+    public int size(){
+        return this.tokens.size();
+    }
+
+    /**
+     * @param index token index
+     * @return token of the last line
+     */
+    public String token(final int index){
+        return this.tokens.get(index);
+    }
+
+    /**
+     * Tokens from the given index, typically 1 to skip the command name
+     * @param from first token index
+     * @return copy of the tokens, shared empty array if none
+     */
+    public String[] arguments(final int from){
+        return arguments(from, this.tokens.size());
+    }
+
+    /**
+     * Tokens in the given range, e.g. the arguments of a pipeline segment
+     * @param from first token index
+     * @param to index after the last token
+     * @return copy of the tokens, shared empty array if none
+     */
+    public String[] arguments(final int from, final int to){
+        final int count = to - from;
+        if(count <= 0){
+            return NO_ARGS;
+        }
+
+        final String[] args = new String[count];
+        for(int i = 0; i < count; i++){
+            args[i] = this.tokens.get(from + i);
+        }
+
+        return args;
+    }
+
+    private static boolean isDoubleQuoteEscape(final char c){
+        return c == '"' || c == '\\' || c == '$';
+    }
+
+    /*
+    End of the $NAME or ${NAME} reference starting at a '$',
+    -1 for a lone $, an empty name or an unclosed brace
+     */
+    private static int referenceEnd(final CharSequence line, final int dollar){
+        final int length = line.length();
+        final boolean braced = dollar + 1 < length && line.charAt(dollar + 1) == '{';
+        final int nameStart = braced ? dollar + 2 : dollar + 1;
+
+        int nameEnd = nameStart;
+        while(nameEnd < length && isNameChar(line.charAt(nameEnd))){
+            nameEnd++;
+        }
+
+        if(nameEnd == nameStart || (braced && (nameEnd >= length || line.charAt(nameEnd) != '}'))){
+            return -1;
+        }
+        return braced ? nameEnd + 1 : nameEnd;
+    }
+
+    private static String referenceName(final CharSequence line, final int dollar, final int referenceEnd){
+        return line.charAt(dollar + 1) == '{'
+                ? line.subSequence(dollar + 2, referenceEnd - 1).toString()
+                : line.subSequence(dollar + 1, referenceEnd).toString();
+    }
+
+    private static boolean isNameChar(final char c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -1,13 +1,86 @@
 package fr.nkri.shell.utils;
 
 import fr.nkri.shell.enums.MiniColor;
+import fr.nkri.shell.io.OutputSink;
+import fr.nkri.shell.io.ShellOutput;
 
-public class ProgressBar {
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Progress bar, updated from any number of threads.
+ * Progress is a lock-free counter : increment() and add() never render.
+ * Once started, the bar is redrawn by a timer at a fixed rate with its throughput and ETA,
+ * so hot loops only pay for an increment. update() draws at once, only when the bar gains a step.
+ * The bar draws to the sink of the thread that created it, so it can be updated from a callback thread.
+ * Several bars can be drawn stacked by a ProgressGroup.
+ */
+public class ProgressBar implements AutoCloseable {
+
+    static final Duration DEFAULT_REFRESH = Duration.ofMillis(100);
+
+    /*
+    Shared render timer, a daemon so a bar left running does not keep the JVM alive
+     */
+    private static final class Timer {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(task -> {
+            final Thread thread = new Thread(task, "progress-render");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+    Weight of the last sample in the smoothed throughput
+     */
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final String label;
+    private final long max;
     private final int total;
     private final char symbol;
     private final MiniColor color;
 
+    /*
+    Cached template : the fill and the empty part are copied from these instead of built char by char
+     */
+    private final char[] filledTemplate;
+    private final char[] emptyTemplate;
+
+    private final LongAdder progress;
+
+    /*
+    Last step drawn by update(), filled chars * 101 + percent
+     */
+    private final AtomicInteger drawnStep;
+
+    /*
+    Throughput, sampled on each timer render
+     */
+    private long startNanos;
+    private long sampleNanos;
+    private long sampleValue;
+    private boolean sampled;
+    private double rate;
+
+    private ScheduledFuture<?> task;
+
+    /*
+    Sink drawn to, the one of the creating thread until start() is called
+     */
+    private OutputSink sink;
+
+    /*
+    Drawn by a timer, its own or the one of a group
+     */
+    private volatile boolean autoRendered;
+
     /**
      * Progress bar
      * @param total Bar length (in characters)
@@ -24,35 +97,306 @@ public class ProgressBar {
      * @param color mini color
      */
     public ProgressBar(final int total, final char symbol, final MiniColor color) {
+        this(null, total, total, symbol, color);
+    }
+
+    /**
+     * Progress bar counting items
+     * @param label text before the bar, can be null
+     * @param max value of a complete bar, e.g. the number of files or bytes
+     * @param total Bar length (in characters)
+     */
+    public ProgressBar(final String label, final long max, final int total) {
+        this(label, max, total, '=', MiniColor.GREEN);
+    }
+
+    /**
+     * Progress bar counting items
+     * @param label text before the bar, can be null
+     * @param max value of a complete bar, e.g. the number of files or bytes
+     * @param total Bar length (in characters)
+     * @param symbol Fill symbol
+     * @param color mini color
+     */
+    public ProgressBar(final String label, final long max, final int total, final char symbol, final MiniColor color) {
+        if(max <= 0 || total <= 0){
+            throw new IllegalArgumentException("Progress bar max and length must be positive!");
+        }
+
+        this.label = label;
+        this.max = max;
         this.total = total;
         this.symbol = symbol;
         this.color = color;
+        this.filledTemplate = new char[total];
+        this.emptyTemplate = new char[total];
+        Arrays.fill(this.filledTemplate, symbol);
+        Arrays.fill(this.emptyTemplate, ' ');
+        this.progress = new LongAdder();
+        this.drawnStep = new AtomicInteger(-1);
+        this.startNanos = System.nanoTime();
+        this.sink = ShellOutput.sink();
     }
 
     /**
-     * Updates the progress bar
+     * Add one to the progress, from any thread, without rendering
+     */
+    public void increment() {
+        this.progress.increment();
+    }
+
+    /**
+     * Add to the progress, from any thread, without rendering
+     * @param amount items or bytes done
+     */
+    public void add(final long amount) {
+        this.progress.add(amount);
+    }
+
+    /**
+     * Set the progress, without rendering. Increments made at the same time by other threads may be lost.
+     * @param current current value
+     */
+    public void set(final long current) {
+        this.progress.add(current - this.progress.sum());
+    }
+
+    /**
+     * Set the progress and draw the bar, if it gained a step since the last update
      * @param current current value
      */
     public void update(final int current) {
-        final int filled = (int) ((current / (double) total) * total);
-        final StringBuilder bar = new StringBuilder();
+        set(current);
 
-        bar.append("[");
-        for(int i = 0; i < total; i++){
-            if(i < filled){
-                bar.append(symbol);
-            }
-            else{
-                bar.append(" ");
+        final long value = Math.min(Math.max(current, 0), this.max);
+        final int step = filled(value) * 101 + percent(value);
+        final int previous = this.drawnStep.getAndSet(step);
+        if(previous == step){
+            return;
+        }
+
+        final StringBuilder line = new StringBuilder(this.total + 32);
+        line.append('\r');
+        render(line, false);
+
+        synchronized (this) {
+            this.sink.print(line);
+            if(current >= this.max){
+                this.sink.println();
             }
+
+            this.sink.flush();
+        }
+    }
+
+    /**
+     * Redraw the bar with its throughput and ETA at the default refresh rate, until closed
+     * @return this bar
+     */
+    public ProgressBar start() {
+        return start(DEFAULT_REFRESH);
+    }
+
+    /**
+     * Redraw the bar with its throughput and ETA at a fixed rate, until closed.
+     * The output goes to the sink of the calling thread.
+     * @param refresh time between two redraws
+     * @return this bar
+     */
+    public synchronized ProgressBar start(final Duration refresh) {
+        if(this.task != null){
+            return this;
+        }
+
+        restart();
+        this.autoRendered = true;
+        this.sink = ShellOutput.sink();
+        this.task = schedule(this::tick, refresh);
+        return this;
+    }
+
+    /**
+     * Stop the timer and draw the final state of the bar
+     */
+    @Override
+    public synchronized void close() {
+        if(this.task == null){
+            return;
+        }
+
+        this.task.cancel(false);
+        this.task = null;
+        draw(true);
+    }
+
+    private synchronized void tick() {
+        /*
+        A tick running late, once the bar is closed, must not draw over the final state
+         */
+        if(this.task != null){
+            draw(false);
+        }
+    }
+
+    private void draw(final boolean last) {
+        final StringBuilder line = new StringBuilder(this.total + 64);
+        line.append('\r');
+        sample();
+        render(line, true);
+        line.append("\u001B[K");
+        if(last){
+            line.append('\n');
+        }
+
+        synchronized (this.sink) {
+            this.sink.print(line);
+            this.sink.flush();
+        }
+    }
+
+    /**
+     * Schedule a render on the shared timer
+     */
+    static ScheduledFuture<?> schedule(final Runnable render, final Duration refresh) {
+        final long period = Math.max(1, refresh.toMillis());
+        return Timer.EXECUTOR.scheduleAtFixedRate(render, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+    Throughput and ETA are measured from here
+     */
+    synchronized void restart() {
+        this.startNanos = System.nanoTime();
+        this.sampleNanos = this.startNanos;
+        this.sampleValue = this.progress.sum();
+        this.sampled = false;
+        this.rate = 0;
+    }
+
+    /*
+    Smooth the throughput over the renders, so the ETA does not jump around
+     */
+    synchronized void sample() {
+        final long now = System.nanoTime();
+        final long value = this.progress.sum();
+        final long elapsed = now - this.sampleNanos;
+        if(elapsed < TimeUnit.MILLISECONDS.toNanos(10)){
+            return;
         }
-        bar.append("] ");
-        bar.append((int) ((current / (double) total) * 100)).append("%");
 
-        System.out.print("\r" + color + bar.toString() + "\u001B[0m");
+        final double current = (value - this.sampleValue) * 1e9 / elapsed;
+        this.rate = this.sampled ? this.rate + RATE_SMOOTHING * (current - this.rate) : current;
+        this.sampled = true;
+        this.sampleNanos = now;
+        this.sampleValue = value;
+    }
 
-        if(current >= total){
-            System.out.println();
+    /**
+     * Append the bar : label [=====     ] 50%, then count, throughput and ETA if asked
+     */
+    void render(final StringBuilder line, final boolean stats) {
+        final long value = Math.min(Math.max(this.progress.sum(), 0), this.max);
+        final int filled = filled(value);
+
+        if(this.label != null){
+            line.append(this.label).append(' ');
+        }
+        line.append(this.color).append('[')
+                .append(this.filledTemplate, 0, filled)
+                .append(this.emptyTemplate, 0, this.total - filled)
+                .append("] ").append(percent(value)).append('%');
+
+        if(stats){
+            line.append(' ').append(value).append('/').append(this.max)
+                    .append(' ').append(formatRate(this.rate)).append("/s")
+                    .append(value >= this.max ? " in " : " ETA ").append(formatEta(value));
+        }
+        line.append(MiniColor.RESET);
+    }
+
+    private int filled(final long value) {
+        return (int) (value * this.total / this.max);
+    }
+
+    private int percent(final long value) {
+        return (int) (value * 100 / this.max);
+    }
+
+    private static String formatRate(final double rate) {
+        if(rate >= 1e9){
+            return String.format("%.1fG", rate / 1e9);
+        }
+        if(rate >= 1e6){
+            return String.format("%.1fM", rate / 1e6);
+        }
+        if(rate >= 1e3){
+            return String.format("%.1fk", rate / 1e3);
         }
+        return String.format("%.1f", rate);
+    }
+
+    /*
+    Time left, or time taken once complete
+     */
+    private String formatEta(final long value) {
+        if(value >= this.max){
+            return formatTime((System.nanoTime() - this.startNanos) / 1_000_000_000L);
+        }
+        if(this.rate <= 0){
+            return "--:--";
+        }
+        return formatTime((long) Math.ceil((this.max - value) / this.rate));
+    }
+
+    private static String formatTime(final long seconds) {
+        return seconds >= 3600 ? String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60)
+                : String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    void setAutoRendered(final boolean autoRendered) {
+        this.autoRendered = autoRendered;
+    }
+
+    /**
+     * @return true if the bar is redrawn by a timer, started or part of a ProgressGroup
+     */
+    public boolean isAutoRendered() {
+        return autoRendered;
+    }
+
+    /**
+     * @return current value, the sum of the increments
+     */
+    public long getCurrent() {
+        return progress.sum();
+    }
+
+    /**
+     * @return value of a complete bar
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return true once the progress reached the max
+     */
+    public boolean isDone() {
+        return progress.sum() >= max;
+    }
+
+    /**
+     * @return smoothed throughput per second, measured while the bar is rendered by a timer
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getTotal() {
+        return total;
     }
 }
@@ -0,0 +1,140 @@
+package fr.nkri.shell.utils;
+
+import fr.nkri.shell.io.OutputSink;
+import fr.nkri.shell.io.ShellOutput;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Stacked progress bars, one per line, redrawn together by a timer.
+ * Each redraw moves the cursor back up to the first bar with ANSI codes and rewrites every line,
+ * so parallel jobs (files, downloads...) each keep their own bar without garbling the others.
+ * Bars can be added while the group is running.
+ */
+public class ProgressGroup implements AutoCloseable {
+
+    private final List<ProgressBar> bars;
+
+    /*
+    Lines written by the last redraw, the cursor goes back up by as many
+     */
+    private int drawnLines;
+
+    private ScheduledFuture<?> task;
+    private OutputSink sink;
+
+    public ProgressGroup() {
+        this.bars = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Add a bar at the bottom of the group
+     * @param label text before the bar
+     * @param max value of a complete bar
+     * @param total Bar length (in characters)
+     * @return the new bar, to increment from any thread
+     */
+    public ProgressBar add(final String label, final long max, final int total) {
+        return add(new ProgressBar(label, max, total));
+    }
+
+    public synchronized ProgressBar add(final ProgressBar bar) {
+        if(this.task != null){
+            bar.restart();
+        }
+        bar.setAutoRendered(true);
+        this.bars.add(bar);
+        return bar;
+    }
+
+    /**
+     * Redraw the bars at the default refresh rate, until closed
+     * @return this group
+     */
+    public ProgressGroup start() {
+        return start(ProgressBar.DEFAULT_REFRESH);
+    }
+
+    /**
+     * Redraw the bars at a fixed rate, until closed.
+     * The output goes to the sink of the calling thread.
+     * @param refresh time between two redraws
+     * @return this group
+     */
+    public synchronized ProgressGroup start(final Duration refresh) {
+        if(this.task != null){
+            return this;
+        }
+
+        for(ProgressBar bar : this.bars){
+            bar.restart();
+        }
+        this.sink = ShellOutput.sink();
+        this.task = ProgressBar.schedule(this::tick, refresh);
+        return this;
+    }
+
+    /**
+     * Stop the timer and draw the final state of the bars, the cursor ends below them
+     */
+    @Override
+    public synchronized void close() {
+        if(this.task == null){
+            return;
+        }
+
+        this.task.cancel(false);
+        this.task = null;
+        draw();
+    }
+
+    private synchronized void tick() {
+        if(this.task != null){
+            draw();
+        }
+    }
+
+    private void draw() {
+        final StringBuilder frame = new StringBuilder(this.bars.size() * 96);
+        if(this.drawnLines > 0){
+            frame.append("\u001B[").append(this.drawnLines).append('A');
+        }
+
+        int lines = 0;
+        for(ProgressBar bar : this.bars){
+            frame.append('\r');
+            bar.sample();
+            bar.render(frame, true);
+            frame.append("\u001B[K\n");
+            lines++;
+        }
+        this.drawnLines = lines;
+
+        synchronized (this.sink) {
+            this.sink.print(frame);
+            this.sink.flush();
+        }
+    }
+
+    /**
+     * @return bars of the group, top to bottom
+     */
+    public List<ProgressBar> getBars() {
+        return bars;
+    }
+
+    /**
+     * @return true once every bar reached its max
+     */
+    public boolean isDone() {
+        for(ProgressBar bar : this.bars){
+            if(!bar.isDone()){
+                return false;
+            }
+        }
+        return true;
+    }
+}
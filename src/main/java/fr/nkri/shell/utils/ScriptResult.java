@@ -0,0 +1,72 @@
+package fr.nkri.shell.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a non-interactive run of the shell
+ */
+public class ScriptResult {
+
+    /*
+    Exit statuses
+     */
+    public static final int SUCCESS = 0;
+    public static final int FAILURE = 1;
+    public static final int IO_ERROR = 2;
+
+    private final int exitStatus;
+    private final int executed;
+    private final int failed;
+    private final long elapsedNanos;
+
+    /**
+     * Script result
+     * @param exitStatus 0 if every line succeeded
+     * @param executed number of command lines run
+     * @param failed number of command lines that failed
+     * @param elapsedNanos total run time
+     */
+    public ScriptResult(final int exitStatus, final int executed, final int failed, final long elapsedNanos) {
+        this.exitStatus = exitStatus;
+        this.executed = executed;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public boolean isSuccess() {
+        return exitStatus == SUCCESS;
+    }
+
+    public int getExitStatus() {
+        return exitStatus;
+    }
+
+    public int getExecuted() {
+        return executed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @return commands per second, 0 if nothing ran
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : executed / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("exit=%d executed=%d failed=%d time=%dms (%.0f cmd/s)",
+                exitStatus, executed, failed, getElapsedMillis(), getThroughput());
+    }
+}